@@ -0,0 +1,70 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.service.NodeComponentFactory;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public class BenchmarkComponentFactory implements NodeComponentFactory {
+
+    public NodeComponent createCompositeNodeComponent() {
+        return new Composite();
+    }
+
+    public NodeComponent createLeafNodeComponent() {
+        return new Leaf();
+    }
+
+    @Getter
+    @Setter
+    static class Leaf extends NodeComponent {
+        private Long id;
+        private String name;
+        private Integer lft;
+        private Integer rgt;
+        private Integer depth;
+        private NodeComponent parent;
+    }
+
+    @Getter
+    @Setter
+    static class Composite extends Leaf {
+        private final List<NodeComponent> childList = new ArrayList<>();
+
+        @Override
+        public Set<NodeComponent> getChildren() {
+            return new ListBackedSet(childList);
+        }
+
+        @Override
+        public void addSubNode(NodeComponent child) {
+            childList.add(child);
+        }
+    }
+
+    /**
+     * Exposes the child list through the Set based NodeComponent API without hashing every node.
+     */
+    private static class ListBackedSet extends java.util.AbstractSet<NodeComponent> {
+        private final Collection<NodeComponent> nodes;
+
+        ListBackedSet(Collection<NodeComponent> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public java.util.Iterator<NodeComponent> iterator() {
+            return nodes.iterator();
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import lombok.Getter;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * An embedded H2 database holding one generated tree, with the library's repository and service wired by hand.
+ * Spring Data builds the repository proxy, transactions are demarcated explicitly around each call.
+ */
+@Getter
+public class BenchmarkDatabase implements AutoCloseable {
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+    private final BenchmarkNodeRepository repository;
+    private final BenchmarkNodeRepositoryImpl repositoryImpl;
+    private final BenchmarkNodeService service;
+    private final List<BenchmarkNode> nodes;
+
+    public BenchmarkDatabase(TreeShape shape, int size) {
+        entityManagerFactory = Persistence.createEntityManagerFactory("benchmarks",
+                Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        entityManager = entityManagerFactory.createEntityManager();
+        repositoryImpl = new BenchmarkNodeRepositoryImpl(entityManager);
+        repository = new JpaRepositoryFactory(entityManager).getRepository(BenchmarkNodeRepository.class,
+                RepositoryFragments.just(repositoryImpl));
+        service = new BenchmarkNodeService(repository);
+        nodes = shape.generate(size);
+
+        inTransaction(() -> {
+            for (int i = 0; i < nodes.size(); i++) {
+                entityManager.persist(nodes.get(i));
+                if (i % 500 == 499) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            return null;
+        });
+        entityManager.clear();
+    }
+
+    public <R> R inTransaction(Supplier<R> work) {
+        entityManager.getTransaction().begin();
+        try {
+            R result = work.get();
+            entityManager.getTransaction().commit();
+            return result;
+        } catch (RuntimeException e) {
+            entityManager.getTransaction().rollback();
+            throw e;
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    public BenchmarkNode node(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public void close() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+}
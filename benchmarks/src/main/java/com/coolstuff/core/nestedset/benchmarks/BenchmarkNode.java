@@ -0,0 +1,42 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.columns.DepthColumn;
+import com.coolstuff.core.nestedset.columns.LeftColumn;
+import com.coolstuff.core.nestedset.columns.NameColumn;
+import com.coolstuff.core.nestedset.columns.RightColumn;
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "benchmark_node", indexes = {
+        @Index(name = "benchmark_node_lft", columnList = "lft"),
+        @Index(name = "benchmark_node_rgt", columnList = "rgt"),
+        @Index(name = "benchmark_node_lft_rgt_depth", columnList = "lft, rgt, depth")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class BenchmarkNode extends NodeComponent {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @NameColumn
+    private String name;
+    @LeftColumn
+    private Integer lft;
+    @RightColumn
+    private Integer rgt;
+    @DepthColumn
+    private Integer depth;
+
+    public BenchmarkNode(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,6 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.repository.JpaNodeRepository;
+
+public interface BenchmarkNodeRepository extends JpaNodeRepository<BenchmarkNode, Long> {
+}
@@ -0,0 +1,11 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.repository.AbstractNodeRepository;
+import jakarta.persistence.EntityManager;
+
+public class BenchmarkNodeRepositoryImpl extends AbstractNodeRepository<BenchmarkNode, Long> {
+
+    public BenchmarkNodeRepositoryImpl(EntityManager entityManager) {
+        super(BenchmarkNode.class, entityManager);
+    }
+}
@@ -0,0 +1,11 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.repository.JpaNodeRepository;
+import com.coolstuff.core.nestedset.service.AbstractPersistenceNodeService;
+
+public class BenchmarkNodeService extends AbstractPersistenceNodeService<BenchmarkNode, Long> {
+
+    public BenchmarkNodeService(JpaNodeRepository<BenchmarkNode, Long> jpaNodeRepository) {
+        super(jpaNodeRepository);
+    }
+}
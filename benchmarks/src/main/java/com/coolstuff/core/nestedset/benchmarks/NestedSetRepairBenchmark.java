@@ -0,0 +1,68 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.service.NestedSetValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating a whole tree and repairing one where the rgt half of a boundary shift from the middle of the tree
+ * was applied without the lft half. The repair includes the UPDATE that breaks the tree again.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NestedSetRepairBenchmark {
+    @Param({"BALANCED", "WIDE", "DEEP"})
+    private TreeShape shape;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private BenchmarkDatabase database;
+    private NestedSetValidator<BenchmarkNode> validator;
+    private int middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(shape, size);
+        validator = new NestedSetValidator<>(database.getRepositoryImpl());
+        middle = database.node(size / 2).getLft();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<NestedSetValidator.Violation> validate() {
+        return database.inTransaction(() -> validator.validate());
+    }
+
+    @Benchmark
+    public int rebuild() {
+        return database.inTransaction(() -> {
+            database.getEntityManager().createQuery("update BenchmarkNode n set n.rgt = n.rgt + 2 where n.rgt >= :from")
+                    .setParameter("from", middle)
+                    .executeUpdate();
+            return validator.rebuild();
+        });
+    }
+}
@@ -0,0 +1,168 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Every NodeRepository method against an embedded H2 tree. Writes are issued in pairs that undo each other,
+ * so the tree keeps its shape across invocations.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NodeRepositoryBenchmark {
+    @Param({"BALANCED", "WIDE", "DEEP"})
+    private TreeShape shape;
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkDatabase database;
+    private BenchmarkNodeRepository repository;
+    private BenchmarkNode root;
+    private BenchmarkNode subtree;
+    private BenchmarkNode middle;
+    private BenchmarkNode leaf;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(shape, size);
+        repository = database.getRepository();
+        root = database.node(0);
+        subtree = database.node(1);
+        middle = database.node(size / 2);
+        leaf = database.node(size - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Integer findMaxRight() {
+        return database.inTransaction(repository::findMaxRight);
+    }
+
+    @Benchmark
+    public Integer findMaxRightWithin() {
+        return database.inTransaction(() -> repository.findMaxRightWithin(subtree.getLft(), subtree.getRgt()));
+    }
+
+    @Benchmark
+    public Integer findNextBoundaryAfter() {
+        return database.inTransaction(() -> repository.findNextBoundaryAfter(middle.getRgt()));
+    }
+
+    @Benchmark
+    public Object findParentByRange() {
+        return database.inTransaction(() -> repository.findParentByRange(middle.getLft(), middle.getRgt()));
+    }
+
+    @Benchmark
+    public List<BenchmarkNode> findChildren() {
+        return database.inTransaction(() -> repository.findChildren(subtree.getLft(), subtree.getRgt()));
+    }
+
+    @Benchmark
+    public long streamSubtree() {
+        return database.inTransaction(() -> {
+            try (Stream<BenchmarkNode> nodes = repository.streamSubtree(subtree.getLft(), subtree.getRgt())) {
+                return nodes.count();
+            }
+        });
+    }
+
+    @Benchmark
+    public long streamAll() {
+        return database.inTransaction(() -> {
+            try (Stream<BenchmarkNode> nodes = repository.streamAll()) {
+                return nodes.count();
+            }
+        });
+    }
+
+    @Benchmark
+    public List<BenchmarkNode> findImmediateChildren() {
+        return database.inTransaction(() -> repository.findImmediateChildren(subtree.getId()));
+    }
+
+    @Benchmark
+    public List<BenchmarkNode> findDescendants() {
+        return database.inTransaction(() -> repository.findDescendants(subtree.getId(), 2));
+    }
+
+    @Benchmark
+    public List<BenchmarkNode> findParentOf() {
+        return database.inTransaction(() -> repository.findParentOf(leaf.getId()));
+    }
+
+    @Benchmark
+    public Object incrementAndDecrementBoundaries() {
+        return database.inTransaction(() -> {
+            repository.incrementLeftBoundaryAfter(middle.getRgt());
+            repository.incrementRightBoundaryAfter(middle.getRgt() + 1);
+            repository.decrementLeftBoundaryAfter(middle.getRgt(), 2);
+            repository.decrementRightBoundaryAfter(middle.getRgt(), 2);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Object shiftBoundariesFrom() {
+        return database.inTransaction(() -> {
+            repository.shiftBoundariesFrom(middle.getRgt() + 1, 2);
+            repository.shiftBoundariesFrom(middle.getRgt() + 3, -2);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Object moveSubtree() {
+        int depthDelta = subtree.getDepth() - leaf.getDepth();
+        return database.inTransaction(() -> {
+            repository.moveSubtree(leaf.getLft(), leaf.getRgt(), subtree.getLft(), depthDelta);
+            repository.moveSubtree(subtree.getLft(), subtree.getLft() + 1, leaf.getLft() + 2, -depthDelta);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Object deleteNodesInRange(AppendedRoot appended) {
+        return database.inTransaction(() -> {
+            repository.deleteNodesInRange(appended.node.getLft(), appended.node.getRgt());
+            return null;
+        });
+    }
+
+    /**
+     * A fresh root appended behind the tree before each invocation, so deleteNodesInRange has something to remove.
+     */
+    @State(Scope.Thread)
+    public static class AppendedRoot {
+        private BenchmarkNode node;
+
+        @Setup(Level.Invocation)
+        public void append(NodeRepositoryBenchmark benchmark) {
+            node = benchmark.database.inTransaction(() -> benchmark.database.getService().createNode(new BenchmarkNode("appended")));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.service.NumberingMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts and deletes through AbstractPersistenceNodeService under random parents, in dense and sparse numbering.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceNodeServiceBenchmark {
+    @Param({"DENSE", "SPARSE"})
+    private NumberingMode numberingMode;
+
+    @Param({"BALANCED", "WIDE", "DEEP"})
+    private TreeShape shape;
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkDatabase database;
+    private BenchmarkNodeService service;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(shape, size);
+        service = database.getService();
+        service.setNumberingMode(numberingMode);
+        if (numberingMode == NumberingMode.SPARSE) {
+            database.inTransaction(() -> {
+                service.rebalance(database.node(0).getId());
+                return null;
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    Long randomParentId() {
+        return database.node(random.nextInt(size)).getId();
+    }
+
+    @Benchmark
+    public BenchmarkNode createNode() {
+        Long parentId = randomParentId();
+        return database.inTransaction(() -> service.createNode(new BenchmarkNode("created"), parentId));
+    }
+
+    @Benchmark
+    public Object deleteNode(CreatedLeaf created) {
+        return database.inTransaction(() -> {
+            service.deleteNode(created.id);
+            return null;
+        });
+    }
+
+    /**
+     * A leaf inserted under a random parent before each invocation, so deleteNode has something to remove.
+     */
+    @State(Scope.Thread)
+    public static class CreatedLeaf {
+        private Long id;
+
+        @Setup(Level.Invocation)
+        public void create(PersistenceNodeServiceBenchmark benchmark) {
+            Long parentId = benchmark.randomParentId();
+            id = benchmark.database.inTransaction(
+                    () -> benchmark.service.createNode(new BenchmarkNode("deleted"), parentId)).getId();
+        }
+    }
+}
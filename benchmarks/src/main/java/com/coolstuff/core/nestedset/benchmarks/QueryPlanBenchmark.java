@@ -0,0 +1,77 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of a small subtree read when the query is built as a Criteria tree on every call, as the
+ * repository used to do, against the JPQL string it now writes once and Hibernate translates once. The
+ * subtree is a single leaf, so the difference is the query overhead rather than the rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryPlanBenchmark {
+    private static final String SUBTREE = "select n from BenchmarkNode n where n.lft >= :left and n.rgt <= :right order by n.lft";
+
+    private BenchmarkDatabase database;
+    private EntityManager entityManager;
+    private BenchmarkNode leaf;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(TreeShape.BALANCED, 1000);
+        entityManager = database.getEntityManager();
+        leaf = database.node(999);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<BenchmarkNode> criteriaPerCall() {
+        return database.inTransaction(() -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<BenchmarkNode> cq = cb.createQuery(BenchmarkNode.class);
+            Root<BenchmarkNode> root = cq.from(BenchmarkNode.class);
+            cq.where(cb.greaterThanOrEqualTo(root.get("lft"), leaf.getLft()), cb.lessThanOrEqualTo(root.get("rgt"), leaf.getRgt()))
+                    .orderBy(cb.asc(root.get("lft")));
+            return entityManager.createQuery(cq).getResultList();
+        });
+    }
+
+    @Benchmark
+    public List<BenchmarkNode> cachedJpql() {
+        return database.inTransaction(() -> entityManager.createQuery(SUBTREE, BenchmarkNode.class)
+                .setParameter("left", leaf.getLft())
+                .setParameter("right", leaf.getRgt())
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<BenchmarkNode> repositoryFindChildren() {
+        return database.inTransaction(() -> database.getRepository().findChildren(leaf.getLft(), leaf.getRgt()));
+    }
+}
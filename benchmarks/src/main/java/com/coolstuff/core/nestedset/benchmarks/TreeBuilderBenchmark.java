@@ -0,0 +1,75 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.service.IterativeTreeBuilder;
+import com.coolstuff.core.nestedset.service.NodeComponentFactory;
+import com.coolstuff.core.nestedset.service.TreeBuilder;
+import com.coolstuff.core.nestedset.service.TreeBuilderImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-memory tree assembly and leaf collection for both TreeBuilder implementations.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xss16m", "-Xmx4g"})
+public class TreeBuilderBenchmark {
+    public enum Builder {
+        RECURSIVE(TreeBuilderImpl::new),
+        ITERATIVE(IterativeTreeBuilder::new);
+
+        private final Function<NodeComponentFactory, TreeBuilder> constructor;
+
+        Builder(Function<NodeComponentFactory, TreeBuilder> constructor) {
+            this.constructor = constructor;
+        }
+    }
+
+    @Param({"RECURSIVE", "ITERATIVE"})
+    private Builder builder;
+
+    @Param({"BALANCED", "WIDE", "DEEP"})
+    private TreeShape shape;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private TreeBuilder treeBuilder;
+    private List<NodeComponent> nodes;
+    private NodeComponent tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        treeBuilder = builder.constructor.apply(new BenchmarkComponentFactory());
+        nodes = List.copyOf(shape.generate(size));
+        tree = treeBuilder.buildTree(nodes).orElseThrow();
+    }
+
+    @Benchmark
+    public NodeComponent buildTree() {
+        return treeBuilder.buildTree(nodes).orElseThrow();
+    }
+
+    @Benchmark
+    public List<NodeComponent> getLeafList() {
+        return treeBuilder.getLeafList(tree);
+    }
+}
@@ -0,0 +1,83 @@
+package com.coolstuff.core.nestedset.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Synthetic tree shapes. Every shape is generated as a pre-order list of depths and then numbered densely.
+ */
+public enum TreeShape {
+    /**
+     * One root with all other nodes as its direct children.
+     */
+    WIDE {
+        @Override
+        int[] depths(int size) {
+            int[] depths = new int[size];
+            for (int i = 1; i < size; i++) {
+                depths[i] = 1;
+            }
+            return depths;
+        }
+    },
+    /**
+     * One root with about sqrt(size) chains of about sqrt(size) nodes each.
+     */
+    DEEP {
+        @Override
+        int[] depths(int size) {
+            int chainLength = Math.max(1, (int) Math.ceil(Math.sqrt(size)));
+            int[] depths = new int[size];
+            for (int i = 1; i < size; i++) {
+                depths[i] = (i - 1) % chainLength + 1;
+            }
+            return depths;
+        }
+    },
+    /**
+     * A complete tree with a fanout of 8.
+     */
+    BALANCED {
+        @Override
+        int[] depths(int size) {
+            int fanout = 8;
+            int[] depths = new int[size];
+            Deque<int[]> pending = new ArrayDeque<>();
+            pending.push(new int[]{0, 0});
+            int position = 0;
+            while (!pending.isEmpty()) {
+                int[] node = pending.pop();
+                depths[position++] = node[1];
+                for (int child = Math.min(size - 1, fanout * node[0] + fanout); child > fanout * node[0]; child--) {
+                    pending.push(new int[]{child, node[1] + 1});
+                }
+            }
+            return depths;
+        }
+    };
+
+    abstract int[] depths(int size);
+
+    public List<BenchmarkNode> generate(int size) {
+        int[] depths = depths(size);
+        List<BenchmarkNode> nodes = new ArrayList<>(size);
+        Deque<BenchmarkNode> open = new ArrayDeque<>();
+        int counter = 1;
+        for (int i = 0; i < size; i++) {
+            while (open.size() > depths[i]) {
+                open.pop().setRgt(counter++);
+            }
+            BenchmarkNode node = new BenchmarkNode(name() + "-" + i);
+            node.setLft(counter++);
+            node.setDepth(depths[i]);
+            nodes.add(node);
+            open.push(node);
+        }
+        while (!open.isEmpty()) {
+            open.pop().setRgt(counter++);
+        }
+        return nodes;
+    }
+}
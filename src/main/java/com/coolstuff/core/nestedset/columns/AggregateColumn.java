@@ -0,0 +1,14 @@
+package com.coolstuff.core.nestedset.columns;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks a column holding the sum of the {@link #source()} column over the node and all its descendants.
+ * Both columns must be Integer or Long. The service keeps the sums current when nodes are created, deleted
+ * or moved; changing a source value of a stored node needs {@code NodeRepository#addToAncestors} as well.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AggregateColumn {
+    String source();
+}
@@ -0,0 +1,10 @@
+package com.coolstuff.core.nestedset.columns;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks the column that tells the trees of a table apart. Every tree is numbered on its own, starting at 1.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TreeScopeColumn {}
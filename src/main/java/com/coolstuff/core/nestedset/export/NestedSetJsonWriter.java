@@ -0,0 +1,118 @@
+package com.coolstuff.core.nestedset.export;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Serializes nodes arriving in lft order without building the tree first. Only the chain of currently open
+ * ancestors is kept, so memory grows with the depth of the tree and not with the number of nodes.
+ */
+@RequiredArgsConstructor
+public class NestedSetJsonWriter {
+    private final Writer writer;
+
+    /**
+     * Writes the roots as a JSON array, every node carrying its descendants in a nested "children" array.
+     */
+    public long writeJson(Stream<? extends NodeComponent> lftOrdered) throws IOException {
+        Deque<Integer> openRights = new ArrayDeque<>();
+        boolean needComma = false;
+        long count = 0;
+
+        writer.write('[');
+        Iterator<? extends NodeComponent> nodes = lftOrdered.iterator();
+        while (nodes.hasNext()) {
+            NodeComponent node = nodes.next();
+            while (!openRights.isEmpty() && openRights.peek() < node.getLft()) {
+                openRights.pop();
+                writer.write("]}");
+                needComma = true;
+            }
+            if (needComma) {
+                writer.write(',');
+            }
+            writeFields(node);
+            writer.write(",\"children\":[");
+            openRights.push(node.getRgt());
+            needComma = false;
+            count++;
+        }
+        while (!openRights.isEmpty()) {
+            openRights.pop();
+            writer.write("]}");
+        }
+        writer.write(']');
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Writes one JSON object per line with the id of the parent instead of nesting.
+     */
+    public long writeNdjson(Stream<? extends NodeComponent> lftOrdered) throws IOException {
+        Deque<NodeComponent> ancestors = new ArrayDeque<>();
+        long count = 0;
+
+        Iterator<? extends NodeComponent> nodes = lftOrdered.iterator();
+        while (nodes.hasNext()) {
+            NodeComponent node = nodes.next();
+            while (!ancestors.isEmpty() && ancestors.peek().getRgt() < node.getLft()) {
+                ancestors.pop();
+            }
+            writeFields(node);
+            writer.write(",\"parentId\":");
+            writer.write(ancestors.isEmpty() ? "null" : String.valueOf(ancestors.peek().getId()));
+            writer.write("}\n");
+            ancestors.push(node);
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeFields(NodeComponent node) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(String.valueOf(node.getId()));
+        writer.write(",\"name\":");
+        writeString(node.getName());
+        writer.write(",\"lft\":");
+        writer.write(String.valueOf(node.getLft()));
+        writer.write(",\"rgt\":");
+        writer.write(String.valueOf(node.getRgt()));
+        writer.write(",\"depth\":");
+        writer.write(String.valueOf(node.getDepth()));
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
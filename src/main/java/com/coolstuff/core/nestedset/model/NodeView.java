@@ -0,0 +1,16 @@
+package com.coolstuff.core.nestedset.model;
+
+/**
+ * The nested set columns of one node, read by a projection query. Views are never managed, so reading them
+ * costs no entity snapshot and no dirty check.
+ */
+public record NodeView(Long id, String name, Integer lft, Integer rgt, Integer depth) {
+
+    public static NodeView of(NodeComponent node) {
+        return new NodeView(node.getId(), node.getName(), node.getLft(), node.getRgt(), node.getDepth());
+    }
+
+    public boolean isLeaf() {
+        return rgt == lft + 1;
+    }
+}
@@ -1,32 +1,131 @@
 package com.coolstuff.core.nestedset.repository;
 
+import com.coolstuff.core.nestedset.columns.AggregateColumn;
 import com.coolstuff.core.nestedset.columns.DepthColumn;
 import com.coolstuff.core.nestedset.columns.LeftColumn;
 import com.coolstuff.core.nestedset.columns.NameColumn;
 import com.coolstuff.core.nestedset.columns.RightColumn;
+import com.coolstuff.core.nestedset.columns.TreeScopeColumn;
 import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.FlushModeType;
 import jakarta.persistence.Id;
-import jakarta.persistence.criteria.*;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Getter
 public abstract class AbstractNodeRepository<T extends NodeComponent, ID> implements NodeRepository<T, ID> {
     private final Class<T> entityClassType;
     private final EntityManager entityManager;
     private final NodeField configs;
+    private final Field scopeField;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Field> aggregateFields = new LinkedHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Field> sourceFields = new LinkedHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final NodeQueries queries;
+
+    /**
+     * Rows fetched per round trip by the streaming reads.
+     */
+    @Setter
+    private int streamFetchSize = 1000;
+
+    @Getter(AccessLevel.NONE)
+    private MeterRegistry meterRegistry;
+    @Getter(AccessLevel.NONE)
+    private Counter rowsShifted;
+    @Getter(AccessLevel.NONE)
+    private Counter rowsDeleted;
+    @Getter(AccessLevel.NONE)
+    private DistributionSummary subtreeSizes;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
 
     public AbstractNodeRepository(Class<T> entityClassType, EntityManager entityManager) {
         this.entityClassType = entityClassType;
         this.entityManager = entityManager;
         configs = getConfig(entityClassType);
+        scopeField = findField(entityClassType, configs.getScopeFieldName());
+        configs.getAggregateFieldNames().forEach((aggregate, source) -> {
+            aggregateFields.put(aggregate, integral(findField(entityClassType, aggregate)));
+            sourceFields.put(aggregate, integral(findField(entityClassType, source)));
+        });
+        queries = new NodeQueries(entityManager.getMetamodel().entity(entityClassType).getName(), configs);
+        setMeterRegistry(Metrics.globalRegistry);
+    }
+
+    /**
+     * Registry receiving the repository metrics, all tagged with the entity name: a {@code nestedset.repository}
+     * timer per method, the {@code nestedset.repository.rows.shifted} and {@code nestedset.repository.rows.deleted}
+     * counters and the {@code nestedset.repository.subtree.size} histogram of what {@code findChildren} returns.
+     * Defaults to the global registry, which Spring Boot Actuator backs with its own.
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        timers.clear();
+        String entity = entityClassType.getSimpleName();
+        rowsShifted = Counter.builder("nestedset.repository.rows.shifted")
+                .description("Rows rewritten by boundary updates")
+                .tag("entity", entity)
+                .register(meterRegistry);
+        rowsDeleted = Counter.builder("nestedset.repository.rows.deleted")
+                .tag("entity", entity)
+                .register(meterRegistry);
+        subtreeSizes = DistributionSummary.builder("nestedset.repository.subtree.size")
+                .description("Nodes returned per subtree read")
+                .tag("entity", entity)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private <R> R timed(String method, Supplier<R> call) {
+        return timer(method).record(call);
+    }
+
+    private void timed(String method, Runnable call) {
+        timer(method).record(call);
+    }
+
+    private Timer timer(String method) {
+        return timers.computeIfAbsent(method, name -> Timer.builder("nestedset.repository")
+                .tag("entity", entityClassType.getSimpleName())
+                .tag("method", name)
+                .register(meterRegistry));
     }
 
     private NodeField getConfig(Class<T> clazz) {
@@ -38,8 +137,14 @@ public abstract class AbstractNodeRepository<T extends NodeComponent, ID> implem
         annotationToSetter.put(LeftColumn.class, config::setLeftFieldName);
         annotationToSetter.put(RightColumn.class, config::setRightFieldName);
         annotationToSetter.put(DepthColumn.class, config::setDepthFieldName);
+        annotationToSetter.put(TreeScopeColumn.class, config::setScopeFieldName);
 
         for (Field field : clazz.getDeclaredFields()) {
+            AggregateColumn aggregate = field.getAnnotation(AggregateColumn.class);
+            if (aggregate != null) {
+                config.getAggregateFieldNames().put(field.getName(), aggregate.source());
+                continue;
+            }
             for (Map.Entry<Class<? extends Annotation>, Consumer<String>> entry : annotationToSetter.entrySet()) {
                 if (field.isAnnotationPresent(entry.getKey())) {
                     entry.getValue().accept(field.getName());
@@ -51,117 +156,423 @@ public abstract class AbstractNodeRepository<T extends NodeComponent, ID> implem
         return config;
     }
 
-    protected List<T> executeQuery(CriteriaQuery<T> query) {
-        return entityManager.createQuery(query).getResultList();
+    private Field findField(Class<T> clazz, String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            Field field = clazz.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Field " + name + " is not found", e);
+        }
+    }
+
+    /**
+     * The table the entity is mapped to, as Hibernate writes it in SQL.
+     */
+    public String getTableName() {
+        return persister().getTableName();
+    }
+
+    /**
+     * The column a field of the entity is mapped to, as Hibernate writes it in SQL.
+     */
+    public String getColumnName(String fieldName) {
+        if (fieldName.equals(configs.getIdFieldName())) {
+            return persister().getIdentifierColumnNames()[0];
+        }
+        return persister().getPropertyColumnNames(fieldName)[0];
+    }
+
+    private AbstractEntityPersister persister() {
+        return (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(entityClassType);
     }
 
     @Override
-    public Integer findMaxRight() {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> cq = cb.createQuery(entityClassType);
-        Root<T> queryRoot = cq.from(entityClassType);
+    public Object scopeOf(T node) {
+        if (scopeField == null) {
+            return null;
+        }
+        try {
+            return scopeField.get(node);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Scope of " + node.getName() + " cannot be read", e);
+        }
+    }
 
-        cq.orderBy(cb.desc(queryRoot.get(configs.getRightFieldName())));
-        List<T> highestRows = executeQuery(cq);
+    @Override
+    public void assignScope(T node, Object scope) {
+        if (scopeField == null) {
+            return;
+        }
+        try {
+            scopeField.set(node, scope);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Scope of " + node.getName() + " cannot be written", e);
+        }
+    }
 
-        if (highestRows.isEmpty()) {
-            return 0;
-        } else {
-            return highestRows.getFirst().getRgt();
+    private Field integral(Field field) {
+        Class<?> type = field.getType();
+        if (type != Integer.class && type != int.class && type != Long.class && type != long.class) {
+            throw new RuntimeException("Aggregate field " + field.getName() + " must be Integer or Long");
         }
+        return field;
     }
 
     @Override
-    public List<T> findChildren(Integer left, Integer right) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> cq = cb.createQuery(entityClassType);
-        Root<T> root = cq.from(entityClassType);
+    public Map<String, Long> contributionOf(T node) {
+        return read(sourceFields, node);
+    }
 
-        Predicate leftPredicate = cb.greaterThanOrEqualTo(root.get(configs.getLeftFieldName()), left);
-        Predicate rightPredicate = cb.lessThanOrEqualTo(root.get(configs.getRightFieldName()), right);
-        cq.where(cb.and(leftPredicate, rightPredicate))
-                .orderBy(cb.asc(root.get(configs.getLeftFieldName())));
+    @Override
+    public boolean hasAggregates() {
+        return !aggregateFields.isEmpty();
+    }
 
-        return executeQuery(cq);
+    @Override
+    public Map<String, Long> aggregatesOf(T node) {
+        return read(aggregateFields, node);
     }
 
     @Override
-    public void incrementLeftBoundaryAfter(Integer right) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> cq = criteriaBuilder.createQuery(entityClassType);
-        Root<T> root = cq.from(entityClassType);
-        Predicate predicate = criteriaBuilder.greaterThan(root.get(configs.getLeftFieldName()), right);
-        cq.where(predicate);
+    public void assignAggregates(T node, Map<String, Long> aggregates) {
+        aggregateFields.forEach((aggregate, field) -> {
+            try {
+                field.set(node, toFieldType(field, aggregates.getOrDefault(aggregate, 0L)));
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Aggregate " + aggregate + " of " + node.getName() + " cannot be written", e);
+            }
+        });
+    }
 
-        List<T> result = entityManager.createQuery(cq).getResultList();
+    private Map<String, Long> read(Map<String, Field> fields, T node) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        fields.forEach((aggregate, field) -> {
+            try {
+                Number value = (Number) field.get(node);
+                values.put(aggregate, value == null ? 0L : value.longValue());
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Field " + field.getName() + " of " + node.getName() + " cannot be read", e);
+            }
+        });
+        return values;
+    }
 
-        for (T node : result) {
-            node.setLft(node.getRgt() + 2);
-            entityManager.merge(node);
-        }
+    private Object toFieldType(Field field, long value) {
+        return field.getType() == Integer.class || field.getType() == int.class ? Math.toIntExact(value) : value;
     }
 
     @Override
-    public void incrementRightBoundaryAfter(Integer right) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> cq = criteriaBuilder.createQuery(entityClassType);
-        Root<T> root = cq.from(entityClassType);
-        Predicate predicate = criteriaBuilder.greaterThanOrEqualTo(root.get(configs.getRightFieldName()), right);
-        cq.where(predicate);
+    public boolean isScoped() {
+        return scopeField != null;
+    }
+
+    @Override
+    public Object findScopeOf(ID id) {
+        if (scopeField == null) {
+            return null;
+        }
+        return entityManager.createQuery(queries.scopeOf.unscoped(), Object.class)
+                .setParameter("id", id)
+                .getResultStream().findFirst().orElse(null);
+    }
+
+    private boolean isInScope(T node, Object scope) {
+        return scope == null || scopeField == null || scope.equals(scopeOf(node));
+    }
+
+    /**
+     * Creates the query of {@code statement}, restricted to {@code scope} when the table is scoped and a scope is given.
+     */
+    private <R> TypedQuery<R> createQuery(NodeQueries.Statement statement, Class<R> resultType, Object scope) {
+        return bindScope(entityManager.createQuery(statement.in(scopeField == null ? null : scope), resultType), scope);
+    }
 
-        List<T> result = entityManager.createQuery(cq).getResultList();
+    /**
+     * Creates the bulk update or delete of {@code statement}. Unlike a read, it never spans the trees of a scoped table.
+     */
+    private Query createUpdate(NodeQueries.Statement statement, Object scope) {
+        if (scope == null && scopeField != null) {
+            throw new RuntimeException("Scope is required for a scoped table");
+        }
+        return bindScope(entityManager.createQuery(statement.in(scopeField == null ? null : scope)), scope);
+    }
 
-        for (T node : result) {
-            node.setRgt(node.getRgt() + 2);
-            entityManager.merge(node);
+    private <Q extends Query> Q bindScope(Q query, Object scope) {
+        if (scope != null && scopeField != null) {
+            query.setParameter("scope", scope);
         }
+        return query;
     }
 
     @Override
-    public void decrementLeftBoundaryAfter(Integer right, Integer width) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> cq = criteriaBuilder.createQuery(entityClassType);
-        Root<T> root = cq.from(entityClassType);
-        Predicate predicate = criteriaBuilder.greaterThan(root.get(configs.getLeftFieldName()), right);
-        cq.where(predicate);
+    public Integer findMaxRight(Object scope) {
+        return timed("findMaxRight", () -> {
+            Integer maxRight = createQuery(queries.maxRight, Integer.class, scope).getSingleResult();
+            return maxRight == null ? 0 : maxRight;
+        });
+    }
 
-        List<T> result = entityManager.createQuery(cq).getResultList();
+    @Override
+    public Integer findMaxRightWithin(Object scope, Integer left, Integer right) {
+        return timed("findMaxRightWithin", () -> createQuery(queries.maxRightWithin, Integer.class, scope)
+                .setParameter("left", left)
+                .setParameter("right", right)
+                .getSingleResult());
+    }
 
-        for (T node : result) {
-            node.setLft(node.getLft() - width);
-            entityManager.merge(node);
-        }
+    /**
+     * Returns the smallest lft or rgt value greater than {@code value}, or null when nothing follows it.
+     */
+    @Override
+    public Integer findNextBoundaryAfter(Object scope, Integer value) {
+        return timed("findNextBoundaryAfter", () -> {
+            Integer nextLeft = createQuery(queries.minLeftAfter, Integer.class, scope).setParameter("value", value).getSingleResult();
+            Integer nextRight = createQuery(queries.minRightAfter, Integer.class, scope).setParameter("value", value).getSingleResult();
+            if (nextLeft == null || nextRight == null) {
+                return nextLeft == null ? nextRight : nextLeft;
+            }
+            return Math.min(nextLeft, nextRight);
+        });
+    }
+
+    /**
+     * Finds the closest node enclosing the interval [left, right], i.e. the parent of the node stored there.
+     */
+    @Override
+    public Optional<T> findParentByRange(Object scope, Integer left, Integer right) {
+        return timed("findParentByRange", () -> createQuery(queries.parentByRange, entityClassType, scope)
+                .setParameter("left", left)
+                .setParameter("right", right)
+                .setMaxResults(1)
+                .getResultStream().findFirst());
+    }
+
+    @Override
+    public List<T> findChildren(Object scope, Integer left, Integer right) {
+        return timed("findChildren", () -> {
+            List<T> children = createQuery(queries.subtree, entityClassType, scope)
+                    .setParameter("left", left)
+                    .setParameter("right", right)
+                    .getResultList();
+            subtreeSizes.record(children.size());
+            return children;
+        });
+    }
+
+    @Override
+    public List<T> findChildrenPage(Object scope, Integer left, Integer right, Integer maxDepth, Integer afterLft, int pageSize) {
+        return timed("findChildrenPage", () -> {
+            List<T> page = page(scope, left, right, maxDepth, afterLft, pageSize);
+            subtreeSizes.record(page.size());
+            return page;
+        });
+    }
+
+    private List<T> page(Object scope, Integer left, Integer right, Integer maxDepth, Integer afterLft, int pageSize) {
+        return createQuery(queries.subtreePage, entityClassType, scope)
+                .setParameter("after", afterLft == null ? left - 1 : Math.max(afterLft, left - 1))
+                .setParameter("right", right)
+                .setParameter("maxDepth", maxDepth == null ? Integer.MAX_VALUE : maxDepth)
+                .setMaxResults(pageSize)
+                .getResultList();
+    }
+
+    /**
+     * Streams the subtree [left, right] in lft order. Rows are read with a JDBC fetch size and detached as they
+     * are handed out, so the persistence context does not grow with the subtree. The stream must be consumed
+     * inside a transaction and closed afterwards.
+     */
+    @Override
+    public Stream<T> streamSubtree(Object scope, Integer left, Integer right) {
+        return stream(createQuery(queries.subtree, entityClassType, scope)
+                .setParameter("left", left)
+                .setParameter("right", right));
+    }
+
+    @Override
+    public Stream<T> streamAll(Object scope) {
+        return stream(createQuery(queries.all, entityClassType, scope));
+    }
+
+    private Stream<T> stream(TypedQuery<T> query) {
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    @Override
+    public void incrementLeftBoundaryAfter(Integer right) {
+        timed("incrementLeftBoundaryAfter", () -> shiftField(queries.incrementLeftAfter, right, null, T::getLft, false));
+    }
+
+    @Override
+    public void incrementRightBoundaryAfter(Integer right) {
+        timed("incrementRightBoundaryAfter", () -> shiftField(queries.incrementRightFrom, right, null, T::getRgt, true));
+    }
+
+    @Override
+    public void decrementLeftBoundaryAfter(Integer right, Integer width) {
+        timed("decrementLeftBoundaryAfter", () -> shiftField(queries.decrementLeftAfter, right, width, T::getLft, false));
     }
 
     @Override
     public void decrementRightBoundaryAfter(Integer right, Integer width) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> cq = criteriaBuilder.createQuery(entityClassType);
-        Root<T> root = cq.from(entityClassType);
-        Predicate predicate = criteriaBuilder.greaterThan(root.get(configs.getRightFieldName()), right);
-        cq.where(predicate);
+        timed("decrementRightBoundaryAfter", () -> shiftField(queries.decrementRightAfter, right, width, T::getRgt, false));
+    }
 
-        List<T> result = entityManager.createQuery(cq).getResultList();
+    /**
+     * Shifts every lft and rgt value greater than or equal to {@code from} by {@code delta}
+     * with a single UPDATE. A positive delta opens a gap, a negative delta closes one.
+     */
+    @Override
+    public void shiftBoundariesFrom(Object scope, Integer from, Integer delta) {
+        timed("shiftBoundariesFrom", () -> {
+            Query update = createUpdate(queries.shiftBoundaries, scope)
+                    .setParameter("from", from)
+                    .setParameter("delta", delta);
+            executeUpdate(update, node -> node.getRgt() != null && node.getRgt() >= from && isInScope(node, scope));
+        });
+    }
 
-        for (T node : result) {
-            node.setRgt(node.getRgt() - width);
-            entityManager.merge(node);
-        }
+    /**
+     * Applies what a series of {@link #shiftBoundariesFrom(Object, Integer, Integer)} calls would do with a single
+     * UPDATE. Every value is moved by the widths of all gaps opened at or below it.
+     */
+    @Override
+    public void openGaps(Object scope, NavigableMap<Integer, Integer> widths) {
+        timed("openGaps", () -> {
+            if (widths.isEmpty()) {
+                return;
+            }
+            Integer from = widths.firstKey();
+            Query update = createUpdate(queries.openGaps(widths.size()), scope);
+            int gap = 0;
+            int shift = 0;
+            for (Map.Entry<Integer, Integer> width : widths.entrySet()) {
+                shift += width.getValue();
+                update.setParameter("gap" + gap, width.getKey()).setParameter("shift" + gap, shift);
+                gap++;
+            }
+            executeUpdate(update, node -> node.getRgt() != null && node.getRgt() >= from && isInScope(node, scope));
+        });
+    }
+
+    /**
+     * Moves the subtree [left, right] so that its lft becomes {@code target} in the current numbering.
+     * Only the rows between the old and the new position are rewritten: the subtree rotates past them
+     * and they shift by the subtree width in the opposite direction, all in a single UPDATE.
+     */
+    @Override
+    public void moveSubtree(Object scope, Integer left, Integer right, Integer target, Integer depthDelta) {
+        timed("moveSubtree", () -> {
+            int width = right - left + 1;
+            boolean forward = target > right;
+            int subtreeOffset = forward ? target - right - 1 : target - left;
+            int othersOffset = forward ? -width : width;
+            int low = Math.min(left, target);
+            int high = Math.max(right, target - 1);
+
+            Query update = createUpdate(queries.moveSubtree, scope)
+                    .setParameter("left", left)
+                    .setParameter("right", right)
+                    .setParameter("low", low)
+                    .setParameter("high", high)
+                    .setParameter("depthDelta", depthDelta)
+                    .setParameter("subtreeOffset", subtreeOffset)
+                    .setParameter("othersOffset", othersOffset);
+
+            executeUpdate(update, node -> node.getLft() != null && isInScope(node, scope)
+                    && (node.getLft() >= low && node.getLft() <= high || node.getRgt() >= low && node.getRgt() <= high));
+        });
+    }
+
+    @Override
+    public void deleteNodesInRange(Object scope, Integer left, Integer right) {
+        timed("deleteNodesInRange", () -> {
+            entityManager.flush();
+            rowsDeleted.increment(createUpdate(queries.deleteRange, scope)
+                    .setParameter("left", left)
+                    .setParameter("right", right)
+                    .executeUpdate());
+
+            findManaged(node -> node.getLft() != null && node.getLft() >= left && node.getRgt() <= right && isInScope(node, scope))
+                    .forEach(entityManager::detach);
+        });
     }
 
     @Override
-    public void deleteNodesInRange(Integer left, Integer right) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaDelete<T> query = criteriaBuilder.createCriteriaDelete(entityClassType);
-        Root<T> root = query.from(entityClassType);
+    public void addToAncestors(Object scope, Integer left, Integer right, Map<String, Long> deltas) {
+        if (aggregateFields.isEmpty() || deltas.values().stream().allMatch(delta -> delta == 0)) {
+            return;
+        }
+        timed("addToAncestors", () -> {
+            Query update = createUpdate(queries.addToAncestors, scope)
+                    .setParameter("left", left)
+                    .setParameter("right", right);
+            int i = 0;
+            for (Map.Entry<String, Field> aggregate : aggregateFields.entrySet()) {
+                update.setParameter("delta" + i++, toFieldType(aggregate.getValue(), deltas.getOrDefault(aggregate.getKey(), 0L)));
+            }
+            refreshAfter(update, node -> node.getLft() != null && node.getLft() < left && node.getRgt() > right && isInScope(node, scope));
+        });
+    }
 
-        query.where(
-                criteriaBuilder.and(
-                        criteriaBuilder.greaterThanOrEqualTo(root.get(configs.getLeftFieldName()), left),
-                        criteriaBuilder.lessThanOrEqualTo(root.get(configs.getRightFieldName()), right)
-                )
-        );
-        entityManager.createQuery(query).executeUpdate();
+    private void shiftField(NodeQueries.Statement statement, Integer boundary, Integer width, Function<T, Integer> value, boolean inclusive) {
+        Query update = createUpdate(statement, null).setParameter("boundary", boundary);
+        if (width != null) {
+            update.setParameter("width", width);
+        }
+        executeUpdate(update, node -> {
+            Integer current = value.apply(node);
+            return current != null && (inclusive ? current >= boundary : current > boundary);
+        });
+    }
+
+    /**
+     * Runs a bulk UPDATE and refreshes the managed nodes it touched, so the persistence
+     * context never hands out stale lft/rgt values afterwards.
+     */
+    protected int executeUpdate(Query update, java.util.function.Predicate<T> affected) {
+        int rows = refreshAfter(update, affected);
+        rowsShifted.increment(rows);
+        return rows;
+    }
+
+    private int refreshAfter(Query update, java.util.function.Predicate<T> affected) {
+        entityManager.flush();
+        List<T> stale = findManaged(affected);
+        int rows = update.executeUpdate();
+        for (T node : stale) {
+            try {
+                entityManager.refresh(node);
+            } catch (EntityNotFoundException deletedConcurrently) {
+                entityManager.detach(node);
+            }
+        }
+        return rows;
+    }
+
+    private List<T> findManaged(java.util.function.Predicate<T> filter) {
+        List<T> managed = new ArrayList<>();
+        PersistenceContext context = entityManager.unwrap(SessionImplementor.class).getPersistenceContextInternal();
+        for (Map.Entry<Object, EntityEntry> entry : context.reentrantSafeEntityEntries()) {
+            if (entry.getValue().getStatus() == Status.MANAGED && entityClassType.isInstance(entry.getKey())) {
+                T node = entityClassType.cast(entry.getKey());
+                if (filter.test(node)) {
+                    managed.add(node);
+                }
+            }
+        }
+        return managed;
     }
 
     /**
@@ -172,64 +583,140 @@ public abstract class AbstractNodeRepository<T extends NodeComponent, ID> implem
      * For this, we need to show the node and its immediate sub-nodes, but no further down the tree. For example,
      * when showing the PORTABLE ELECTRONICS T,
      * we will want to show MP3 PLAYERS, CD PLAYERS, and 2 WAY RADIOS, but not FLASH.
-     * This can be easily accomplished by adding a HAVING clause to our previous query:
+     * The depth column makes this a range scan on lft: the node and everything inside it one level deeper.
      */
     @Override
     public List<T> findImmediateChildren(ID nodeId) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> query = cb.createQuery(entityClassType);
+        return findDescendants(nodeId, 1);
+    }
 
-        Root<T> node = query.from(entityClassType);
-        Root<T> parent = query.from(entityClassType);
-        Root<T> subParent = query.from(entityClassType);
+    /**
+     * Returns the node followed by its descendants down to {@code maxDepth} levels below it, ordered by lft.
+     */
+    @Override
+    public List<T> findDescendants(ID nodeId, Integer maxDepth) {
+        return timed("findDescendants", () -> {
+            Optional<Tuple> boundaries = findBoundaries(nodeId);
+            if (boundaries.isEmpty()) {
+                return List.of();
+            }
+            return createQuery(queries.descendants, entityClassType, scopeIn(boundaries.get()))
+                    .setParameter("left", boundaries.get().get(0, Integer.class))
+                    .setParameter("right", boundaries.get().get(1, Integer.class))
+                    .setParameter("maxDepth", depthCap(boundaries.get(), maxDepth))
+                    .getResultList();
+        });
+    }
 
-        Subquery<Integer> subQuery = query.subquery(Integer.class);
-        Root<T> subNode = subQuery.from(entityClassType);
-        Root<T> subParentNode = subQuery.from(entityClassType);
+    /**
+     * The absolute depth a read of {@code maxDepth} levels below the node of {@code boundaries} stops at. A null
+     * {@code maxDepth}, or one reaching past {@link Integer#MAX_VALUE}, is unlimited.
+     */
+    private int depthCap(Tuple boundaries, Integer maxDepth) {
+        if (maxDepth == null) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min((long) boundaries.get(2, Integer.class) + maxDepth, Integer.MAX_VALUE);
+    }
 
-        subQuery.select(cb.diff(cb.count(subParentNode), 1).as(Integer.class))
-                .where(
-                        cb.between(subNode.get(configs.getLeftFieldName()), subParentNode.get(configs.getLeftFieldName()), subParentNode.get(configs.getRightFieldName())),
-                        cb.equal(subNode.get(configs.getIdFieldName()), nodeId)
-                )
-                .groupBy(subNode.get(configs.getIdFieldName()), subNode.get(configs.getNameFieldName()), subNode.get(configs.getLeftFieldName()));
+    @Override
+    public List<T> findImmediateChildrenPage(ID nodeId, Integer afterLft, int pageSize) {
+        return findDescendantsPage(nodeId, 1, afterLft, pageSize);
+    }
 
+    @Override
+    public List<T> findDescendantsPage(ID nodeId, Integer maxDepth, Integer afterLft, int pageSize) {
+        return timed("findDescendantsPage", () -> {
+            Optional<Tuple> boundaries = findBoundaries(nodeId);
+            if (boundaries.isEmpty()) {
+                return List.of();
+            }
+            return page(scopeIn(boundaries.get()), boundaries.get().get(0, Integer.class), boundaries.get().get(1, Integer.class),
+                    depthCap(boundaries.get(), maxDepth), afterLft, pageSize);
+        });
+    }
 
-        query.multiselect(
-                        node.get(configs.getIdFieldName()),
-                        node.get(configs.getNameFieldName()),
-                        node.get(configs.getLeftFieldName()),
-                        node.get(configs.getRightFieldName()),
-                        cb.diff(cb.count(parent), cb.sum(subQuery.getSelection(), 1)).as(Integer.class)
-                )
-                .where(
-                        cb.between(node.get(configs.getLeftFieldName()), parent.get(configs.getLeftFieldName()), parent.get(configs.getRightFieldName())),
-                        cb.between(node.get(configs.getLeftFieldName()), subParent.get(configs.getLeftFieldName()), subParent.get(configs.getRightFieldName())),
-                        cb.equal(subParent.get(configs.getIdFieldName()), nodeId)
-                )
-                .groupBy(node.get(configs.getIdFieldName()), node.get(configs.getNameFieldName()), subQuery.getSelection(), node.get(configs.getLeftFieldName()))
-                .having(cb.le(cb.diff(cb.count(parent), cb.sum(subQuery.getSelection(), 1)), 1))
-                .orderBy(cb.asc(node.get(configs.getLeftFieldName())));
+    /**
+     * Returns the path from the root down to the node, including the node itself. The node's boundaries are
+     * looked up by id first, so the ancestors are a plain range predicate on indexed lft/rgt instead of a self-join.
+     */
+    @Override
+    public List<T> findParentOf(ID id) {
+        return timed("findParentOf", () -> {
+            Optional<Tuple> boundaries = findBoundaries(id);
+            if (boundaries.isEmpty()) {
+                return List.of();
+            }
+            return createQuery(queries.ancestors, entityClassType, scopeIn(boundaries.get()))
+                    .setParameter("left", boundaries.get().get(0, Integer.class))
+                    .setParameter("right", boundaries.get().get(1, Integer.class))
+                    .getResultList();
+        });
+    }
 
-        return executeQuery(query);
+    @Override
+    public List<NodeView> findSubtreeViews(Object scope, Integer left, Integer right) {
+        return timed("findSubtreeViews", () -> {
+            List<NodeView> views = readOnly(createQuery(queries.subtreeViews, NodeView.class, scope))
+                    .setParameter("left", left)
+                    .setParameter("right", right)
+                    .getResultList();
+            subtreeSizes.record(views.size());
+            return views;
+        });
+    }
 
+    @Override
+    public List<NodeView> findAllViews(Object scope) {
+        return timed("findAllViews", () -> readOnly(createQuery(queries.allViews, NodeView.class, scope)).getResultList());
     }
 
     @Override
-    public List<T> findParentOf(ID id) {
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> query = criteriaBuilder.createQuery(entityClassType);
-        Root<T> parent = query.from(entityClassType);
-        Root<T> node = query.from(entityClassType);
+    public List<NodeView> findDescendantViews(ID nodeId, Integer maxDepth) {
+        return timed("findDescendantViews", () -> {
+            Optional<Tuple> boundaries = findBoundaries(nodeId);
+            if (boundaries.isEmpty()) {
+                return List.of();
+            }
+            return readOnly(createQuery(queries.descendantViews, NodeView.class, scopeIn(boundaries.get())))
+                    .setParameter("left", boundaries.get().get(0, Integer.class))
+                    .setParameter("right", boundaries.get().get(1, Integer.class))
+                    .setParameter("maxDepth", depthCap(boundaries.get(), maxDepth))
+                    .getResultList();
+        });
+    }
+
+    @Override
+    public List<NodeView> findPathViews(ID id) {
+        return timed("findPathViews", () -> {
+            Optional<Tuple> boundaries = findBoundaries(id);
+            if (boundaries.isEmpty()) {
+                return List.of();
+            }
+            return readOnly(createQuery(queries.ancestorViews, NodeView.class, scopeIn(boundaries.get())))
+                    .setParameter("left", boundaries.get().get(0, Integer.class))
+                    .setParameter("right", boundaries.get().get(1, Integer.class))
+                    .getResultList();
+        });
+    }
 
-        Predicate leftBetween = criteriaBuilder.between(node.get(configs.getLeftFieldName()), parent.get(configs.getLeftFieldName()), parent.get(configs.getRightFieldName()));
-        Predicate nodeIdMatch = criteriaBuilder.and(criteriaBuilder.equal(node.get(configs.getIdFieldName()), id));
+    private <R> TypedQuery<R> readOnly(TypedQuery<R> query) {
+        return query
+                .setFlushMode(FlushModeType.COMMIT)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+    }
 
-        query.select(parent)
-                .where(leftBetween, nodeIdMatch)
-                .orderBy(criteriaBuilder.asc(parent.get(configs.getLeftFieldName())));
+    /**
+     * Reads lft, rgt and depth of a single node without loading the entity, followed by the scope in a scoped table.
+     */
+    protected Optional<Tuple> findBoundaries(ID id) {
+        return entityManager.createQuery(queries.boundaries.unscoped(), Tuple.class)
+                .setParameter("id", id)
+                .getResultStream().findFirst();
+    }
 
-        return this.executeQuery(query);
+    private Object scopeIn(Tuple boundaries) {
+        return scopeField == null ? null : boundaries.get(3);
     }
 
 }
@@ -0,0 +1,16 @@
+package com.coolstuff.core.nestedset.repository;
+
+public enum IndexValidationMode {
+    /**
+     * Logs a warning with the DDL of every missing index.
+     */
+    WARN,
+    /**
+     * Creates the missing indexes.
+     */
+    CREATE,
+    /**
+     * Fails startup when an index is missing.
+     */
+    FAIL
+}
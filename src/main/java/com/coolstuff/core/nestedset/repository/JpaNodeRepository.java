@@ -2,9 +2,11 @@ package com.coolstuff.core.nestedset.repository;
 
 import com.coolstuff.core.nestedset.model.NodeComponent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.NoRepositoryBean;
 
 import java.util.List;
 
+@NoRepositoryBean
 public interface JpaNodeRepository<T extends NodeComponent,ID> extends JpaRepository<T,ID>,NodeRepository<T,ID> {
     List<T> findAllByOrderByLft();
 }
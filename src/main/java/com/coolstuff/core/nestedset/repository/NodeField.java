@@ -3,6 +3,9 @@ package com.coolstuff.core.nestedset.repository;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Getter
 @Setter
 public class NodeField {
@@ -11,4 +14,9 @@ public class NodeField {
     private String leftFieldName;
     private String rightFieldName;
     private String depthFieldName;
+    private String scopeFieldName;
+    /**
+     * Aggregate field names mapped to the field each one sums up.
+     */
+    private Map<String, String> aggregateFieldNames = new LinkedHashMap<>();
 }
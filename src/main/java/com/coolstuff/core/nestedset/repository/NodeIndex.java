@@ -0,0 +1,32 @@
+package com.coolstuff.core.nestedset.repository;
+
+import java.util.List;
+
+/**
+ * An index the nested set queries rely on, by physical table and column names.
+ */
+public record NodeIndex(String table, List<String> columns) {
+
+    public String name() {
+        return (table.substring(table.lastIndexOf('.') + 1) + "_" + String.join("_", columns) + "_idx").toLowerCase();
+    }
+
+    public String ddl() {
+        return "create index " + name() + " on " + table + " (" + String.join(", ", columns) + ")";
+    }
+
+    /**
+     * Whether an index on {@code existing} columns serves this one, i.e. starts with the same columns.
+     */
+    boolean isServedBy(List<String> existing) {
+        if (existing.size() < columns.size()) {
+            return false;
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).equalsIgnoreCase(existing.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
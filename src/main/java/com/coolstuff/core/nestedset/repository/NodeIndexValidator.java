@@ -0,0 +1,150 @@
+package com.coolstuff.core.nestedset.repository;
+
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks at startup that the tables of the given repositories have the indexes the nested set queries need, and
+ * warns with the DDL, creates them or fails depending on the {@link IndexValidationMode}. The indexes are derived
+ * from the annotated fields: {@code (lft, rgt, depth)} covering the subtree and depth capped reads, {@code (rgt)}
+ * for the boundary shifts and {@code (lft)}. A scoped table gets the same indexes prefixed with the scope column.
+ * <p>
+ * An existing index serves a recommended one when it starts with the same columns, so {@code (lft)} is served by
+ * the covering index.
+ */
+@Slf4j
+public class NodeIndexValidator implements SmartInitializingSingleton {
+    private final DataSource dataSource;
+    private final Collection<? extends AbstractNodeRepository<?, ?>> repositories;
+    @Setter
+    private IndexValidationMode mode = IndexValidationMode.WARN;
+
+    public NodeIndexValidator(DataSource dataSource, Collection<? extends AbstractNodeRepository<?, ?>> repositories) {
+        this.dataSource = dataSource;
+        this.repositories = repositories;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        repositories.forEach(this::validate);
+    }
+
+    /**
+     * Validates the table of one repository and returns the indexes that were missing.
+     */
+    public List<NodeIndex> validate(AbstractNodeRepository<?, ?> repository) {
+        List<NodeIndex> recommended = recommendedIndexes(repository);
+        try (Connection connection = dataSource.getConnection()) {
+            List<List<String>> existing = existingIndexes(connection, recommended.getFirst().table());
+            List<NodeIndex> missing = new ArrayList<>();
+            for (NodeIndex index : recommended) {
+                if (existing.stream().noneMatch(index::isServedBy)) {
+                    missing.add(index);
+                    // counted as present from here on, so a prefix of it is not reported as well
+                    existing.add(index.columns());
+                }
+            }
+            for (NodeIndex index : missing) {
+                switch (mode) {
+                    case WARN -> log.warn("Nested set table {} has no index on {}: {}", index.table(), index.columns(), index.ddl());
+                    case CREATE -> create(connection, index);
+                    case FAIL -> throw new RuntimeException("Nested set table " + index.table() + " has no index on "
+                            + index.columns() + ", create it with: " + index.ddl());
+                }
+            }
+            return missing;
+        } catch (SQLException e) {
+            throw new RuntimeException("Indexes of " + recommended.getFirst().table() + " cannot be validated", e);
+        }
+    }
+
+    /**
+     * The indexes of the repository table, the covering one first.
+     */
+    public List<NodeIndex> recommendedIndexes(AbstractNodeRepository<?, ?> repository) {
+        NodeField fields = repository.getConfigs();
+        List<String> prefix = fields.getScopeFieldName() == null
+                ? List.of()
+                : List.of(repository.getColumnName(fields.getScopeFieldName()));
+        String left = repository.getColumnName(fields.getLeftFieldName());
+        String right = repository.getColumnName(fields.getRightFieldName());
+        String depth = repository.getColumnName(fields.getDepthFieldName());
+
+        String table = repository.getTableName();
+        return List.of(
+                new NodeIndex(table, concat(prefix, left, right, depth)),
+                new NodeIndex(table, concat(prefix, right)),
+                new NodeIndex(table, concat(prefix, left)));
+    }
+
+    private List<String> concat(List<String> prefix, String... columns) {
+        List<String> all = new ArrayList<>(prefix);
+        all.addAll(List.of(columns));
+        return all;
+    }
+
+    private List<List<String>> existingIndexes(Connection connection, String qualifiedTable) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        // [catalog.][schema.]table, a part that is left out is the one of the connection; databases without
+        // schemas, like MySQL, qualify the table with its catalog instead
+        String[] parts = qualifiedTable.split("\\.");
+        String table = identifier(metaData, parts[parts.length - 1]);
+        String schema = connection.getSchema();
+        String catalog = connection.getCatalog();
+        if (parts.length > 2) {
+            catalog = identifier(metaData, parts[parts.length - 3]);
+            schema = identifier(metaData, parts[parts.length - 2]);
+        } else if (parts.length == 2 && metaData.supportsSchemasInTableDefinitions()) {
+            schema = identifier(metaData, parts[0]);
+        } else if (parts.length == 2) {
+            catalog = identifier(metaData, parts[0]);
+        }
+
+        Map<String, TreeMap<Short, String>> columnsByIndex = new LinkedHashMap<>();
+        try (ResultSet rows = metaData.getIndexInfo(catalog, schema, table, false, true)) {
+            while (rows.next()) {
+                String column = rows.getString("COLUMN_NAME");
+                if (column != null) {
+                    columnsByIndex.computeIfAbsent(rows.getString("INDEX_NAME"), name -> new TreeMap<>())
+                            .put(rows.getShort("ORDINAL_POSITION"), column);
+                }
+            }
+        }
+        List<List<String>> indexes = new ArrayList<>();
+        columnsByIndex.values().forEach(columns -> indexes.add(List.copyOf(columns.values())));
+        return indexes;
+    }
+
+    private String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase();
+        } else if (metaData.storesLowerCaseIdentifiers()) {
+            return name.toLowerCase();
+        }
+        return name;
+    }
+
+    private void create(Connection connection, NodeIndex index) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(index.ddl());
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+        log.info("Created index {}", index.ddl());
+    }
+}
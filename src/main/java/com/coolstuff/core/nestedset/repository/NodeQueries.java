@@ -0,0 +1,163 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.NodeView;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The JPQL of every repository operation, written once per entity from its annotated fields. Hibernate caches
+ * the plan of a query string, so reusing the same strings skips building and translating a Criteria tree on
+ * every call. Each statement has a second form restricted to {@code :scope} for tables with a tree scope column.
+ */
+class NodeQueries {
+    private final String entity;
+    private final String id;
+    private final String left;
+    private final String right;
+    private final String depth;
+    private final String scope;
+    private final String view;
+
+    final Statement maxRight;
+    final Statement maxRightWithin;
+    final Statement minLeftAfter;
+    final Statement minRightAfter;
+    final Statement parentByRange;
+    final Statement subtree;
+    final Statement subtreePage;
+    final Statement all;
+    final Statement shiftBoundaries;
+    final Statement moveSubtree;
+    final Statement deleteRange;
+    final Statement incrementLeftAfter;
+    final Statement incrementRightFrom;
+    final Statement decrementLeftAfter;
+    final Statement decrementRightAfter;
+    final Statement descendants;
+    final Statement ancestors;
+    final Statement boundaries;
+    final Statement scopeOf;
+    final Statement subtreeViews;
+    final Statement allViews;
+    final Statement descendantViews;
+    final Statement ancestorViews;
+    final Statement addToAncestors;
+    private final Map<Integer, Statement> openGaps = new ConcurrentHashMap<>();
+
+    NodeQueries(String entityName, NodeField fields) {
+        this.entity = entityName;
+        this.id = "n." + fields.getIdFieldName();
+        this.left = "n." + fields.getLeftFieldName();
+        this.right = "n." + fields.getRightFieldName();
+        this.depth = "n." + fields.getDepthFieldName();
+        this.scope = fields.getScopeFieldName() == null ? null : "n." + fields.getScopeFieldName();
+        this.view = "new " + NodeView.class.getName() + "(" + id + ", "
+                + (fields.getNameFieldName() == null ? "cast(null as String)" : "n." + fields.getNameFieldName()) + ", "
+                + left + ", " + right + ", " + depth + ")";
+
+        maxRight = select("max(" + right + ")", null);
+        maxRightWithin = select("max(" + right + ")", null, left + " > :left", right + " < :right");
+        minLeftAfter = select("min(" + left + ")", null, left + " > :value");
+        minRightAfter = select("min(" + right + ")", null, right + " > :value");
+        parentByRange = select("n", left + " desc", left + " < :left", right + " > :right");
+        subtree = select("n", left, left + " >= :left", right + " <= :right");
+        // the lft bounds alone delimit the index range, rgt and depth only filter within it
+        subtreePage = select("n", left, left + " > :after", left + " < :right", right + " <= :right", depth + " <= :maxDepth");
+        all = select("n", left);
+        shiftBoundaries = update(left + " = case when " + left + " >= :from then " + left + " + :delta else " + left + " end, "
+                + right + " = " + right + " + :delta", right + " >= :from");
+        // depth is assigned first because it is derived from the lft value before the move
+        moveSubtree = update(depth + " = case when " + left + " between :left and :right then " + depth + " + :depthDelta else " + depth + " end, "
+                        + left + " = " + rotate(left) + ", " + right + " = " + rotate(right),
+                "(" + left + " between :low and :high or " + right + " between :low and :high)");
+        deleteRange = statement("delete from " + entity + " n", null, left + " >= :left", right + " <= :right");
+        incrementLeftAfter = update(left + " = " + left + " + 2", left + " > :boundary");
+        incrementRightFrom = update(right + " = " + right + " + 2", right + " >= :boundary");
+        decrementLeftAfter = update(left + " = " + left + " - :width", left + " > :boundary");
+        decrementRightAfter = update(right + " = " + right + " - :width", right + " > :boundary");
+        descendants = select("n", left, left + " between :left and :right", depth + " <= :maxDepth");
+        ancestors = select("n", left, left + " <= :left", right + " >= :right");
+        boundaries = select(left + ", " + right + ", " + depth + (scope == null ? "" : ", " + scope), null, id + " = :id");
+        scopeOf = scope == null ? null : select(scope, null, id + " = :id");
+        subtreeViews = select(view, left, left + " >= :left", right + " <= :right");
+        allViews = select(view, left);
+        descendantViews = select(view, left, left + " between :left and :right", depth + " <= :maxDepth");
+        ancestorViews = select(view, left, left + " <= :left", right + " >= :right");
+        addToAncestors = fields.getAggregateFieldNames().isEmpty() ? null : update(increments(fields), left + " < :left", right + " > :right");
+    }
+
+    /**
+     * The statement opening {@code gaps} gaps at once, with the boundaries bound as {@code :gap0..} in ascending
+     * order and the sum of the widths up to each of them as {@code :shift0..}. It is written once per gap count.
+     */
+    Statement openGaps(int gaps) {
+        return openGaps.computeIfAbsent(gaps, count -> update(left + " = " + shiftedByGaps(left, count) + ", "
+                + right + " = " + shiftedByGaps(right, count), right + " >= :gap0"));
+    }
+
+    private String shiftedByGaps(String field, int gaps) {
+        // highest boundary first, so the first matching branch carries the sum of every gap below the value
+        StringBuilder shifted = new StringBuilder("case");
+        for (int i = gaps - 1; i >= 0; i--) {
+            shifted.append(" when ").append(field).append(" >= :gap").append(i)
+                    .append(" then ").append(field).append(" + :shift").append(i);
+        }
+        return shifted.append(" else ").append(field).append(" end").toString();
+    }
+
+    /**
+     * Adds {@code :delta0..} to the aggregate fields, in the order of {@link NodeField#getAggregateFieldNames()}.
+     */
+    private String increments(NodeField fields) {
+        StringJoiner increments = new StringJoiner(", ");
+        int i = 0;
+        for (String aggregate : fields.getAggregateFieldNames().keySet()) {
+            increments.add("n." + aggregate + " = n." + aggregate + " + :delta" + i++);
+        }
+        return increments.toString();
+    }
+
+    private String rotate(String field) {
+        return "case when " + field + " between :left and :right then " + field + " + :subtreeOffset"
+                + " when " + field + " between :low and :high then " + field + " + :othersOffset"
+                + " else " + field + " end";
+    }
+
+    private Statement select(String selection, String orderBy, String... conditions) {
+        return statement("select " + selection + " from " + entity + " n", orderBy, conditions);
+    }
+
+    private Statement update(String assignments, String... conditions) {
+        return statement("update " + entity + " n set " + assignments, null, conditions);
+    }
+
+    private Statement statement(String head, String orderBy, String... conditions) {
+        String unscoped = head + where(conditions, null) + (orderBy == null ? "" : " order by " + orderBy);
+        if (scope == null) {
+            return new Statement(unscoped, unscoped);
+        }
+        return new Statement(unscoped, head + where(conditions, scope + " = :scope") + (orderBy == null ? "" : " order by " + orderBy));
+    }
+
+    private String where(String[] conditions, String scopeCondition) {
+        StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+        for (String condition : conditions) {
+            where.add(condition);
+        }
+        if (scopeCondition != null) {
+            where.add(scopeCondition);
+        }
+        return where.toString();
+    }
+
+    /**
+     * A statement over the whole table and the same statement restricted to one tree.
+     */
+    record Statement(String unscoped, String scoped) {
+        String in(Object scope) {
+            return scope == null ? unscoped : scoped;
+        }
+    }
+}
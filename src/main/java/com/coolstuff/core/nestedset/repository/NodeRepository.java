@@ -1,13 +1,74 @@
 package com.coolstuff.core.nestedset.repository;
 
 import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
 
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Nested set operations. The methods taking a {@code scope} only read and write the tree stored under that
+ * value of the {@link com.coolstuff.core.nestedset.columns.TreeScopeColumn}. Only reads accept a null scope, which
+ * like the overloads without one covers the whole table. A write on a scoped table, including the overloads and
+ * boundary shifts without a scope, throws without one instead of changing every tree.
+ */
 public interface NodeRepository<T extends NodeComponent,ID> {
-    Integer findMaxRight();
+    default Integer findMaxRight() {
+        return findMaxRight(null);
+    }
 
-    List<T> findChildren(Integer left, Integer right);
+    Integer findMaxRight(Object scope);
+
+    default Integer findMaxRightWithin(Integer left, Integer right) {
+        return findMaxRightWithin(null, left, right);
+    }
+
+    Integer findMaxRightWithin(Object scope, Integer left, Integer right);
+
+    default Integer findNextBoundaryAfter(Integer value) {
+        return findNextBoundaryAfter(null, value);
+    }
+
+    Integer findNextBoundaryAfter(Object scope, Integer value);
+
+    default Optional<T> findParentByRange(Integer left, Integer right) {
+        return findParentByRange(null, left, right);
+    }
+
+    Optional<T> findParentByRange(Object scope, Integer left, Integer right);
+
+    default List<T> findChildren(Integer left, Integer right) {
+        return findChildren(null, left, right);
+    }
+
+    List<T> findChildren(Object scope, Integer left, Integer right);
+
+    default List<T> findChildrenPage(Integer left, Integer right, Integer afterLft, int pageSize) {
+        return findChildrenPage(null, left, right, null, afterLft, pageSize);
+    }
+
+    /**
+     * Reads one page of the subtree [left, right] in lft order, starting after the node at {@code afterLft}, the
+     * lft of the last node of the previous page, or from the subtree root when it is null. Nodes deeper than
+     * {@code maxDepth} are skipped unless it is null. The page is found by lft instead of an offset, so reading
+     * a page does not go through the pages before it. A page shorter than {@code pageSize} is the last one.
+     */
+    List<T> findChildrenPage(Object scope, Integer left, Integer right, Integer maxDepth, Integer afterLft, int pageSize);
+
+    default Stream<T> streamSubtree(Integer left, Integer right) {
+        return streamSubtree(null, left, right);
+    }
+
+    Stream<T> streamSubtree(Object scope, Integer left, Integer right);
+
+    default Stream<T> streamAll() {
+        return streamAll(null);
+    }
+
+    Stream<T> streamAll(Object scope);
 
     void incrementLeftBoundaryAfter(Integer right);
 
@@ -17,9 +78,103 @@ public interface NodeRepository<T extends NodeComponent,ID> {
 
     void decrementRightBoundaryAfter(Integer right, Integer width);
 
-    void deleteNodesInRange(Integer left, Integer right);
+    default void shiftBoundariesFrom(Integer from, Integer delta) {
+        shiftBoundariesFrom(null, from, delta);
+    }
+
+    void shiftBoundariesFrom(Object scope, Integer from, Integer delta);
+
+    /**
+     * Opens a gap of the mapped width in front of every mapped boundary value, all in one pass.
+     */
+    void openGaps(Object scope, NavigableMap<Integer, Integer> widths);
+
+    default void moveSubtree(Integer left, Integer right, Integer target, Integer depthDelta) {
+        moveSubtree(null, left, right, target, depthDelta);
+    }
+
+    void moveSubtree(Object scope, Integer left, Integer right, Integer target, Integer depthDelta);
+
+    default void deleteNodesInRange(Integer left, Integer right) {
+        deleteNodesInRange(null, left, right);
+    }
+
+    void deleteNodesInRange(Object scope, Integer left, Integer right);
 
     List<T> findImmediateChildren(ID nodeId);
 
+    /**
+     * Returns the node followed by its descendants down to {@code maxDepth} levels below it, ordered by lft. A null
+     * {@code maxDepth} reads the whole subtree, as if it were {@link Integer#MAX_VALUE}.
+     */
+    List<T> findDescendants(ID nodeId, Integer maxDepth);
+
+    List<T> findImmediateChildrenPage(ID nodeId, Integer afterLft, int pageSize);
+
+    /**
+     * Pages through {@link #findDescendants(Object, Integer)} like {@link #findChildrenPage}. A null {@code maxDepth}
+     * reads the whole subtree, as if it were {@link Integer#MAX_VALUE}.
+     */
+    List<T> findDescendantsPage(ID nodeId, Integer maxDepth, Integer afterLft, int pageSize);
+
     List<T> findParentOf(ID id);
+
+    default List<NodeView> findSubtreeViews(Integer left, Integer right) {
+        return findSubtreeViews(null, left, right);
+    }
+
+    /**
+     * Reads the subtree [left, right] as views in lft order. Like the other view reads it selects only the nested
+     * set columns and leaves the persistence context untouched. View reads do not flush pending changes first,
+     * so changes made in the same transaction are only seen once they are flushed.
+     */
+    List<NodeView> findSubtreeViews(Object scope, Integer left, Integer right);
+
+    default List<NodeView> findAllViews() {
+        return findAllViews(null);
+    }
+
+    List<NodeView> findAllViews(Object scope);
+
+    /**
+     * {@link #findDescendants(Object, Integer)} as views, with the same null {@code maxDepth} for the whole subtree.
+     */
+    List<NodeView> findDescendantViews(ID nodeId, Integer maxDepth);
+
+    List<NodeView> findPathViews(ID id);
+
+    /**
+     * Whether the table holds several trees told apart by a {@link com.coolstuff.core.nestedset.columns.TreeScopeColumn}.
+     */
+    boolean isScoped();
+
+    /**
+     * Reads the scope of a stored node without loading it. Returns null for an unscoped table or an unknown id.
+     */
+    Object findScopeOf(ID id);
+
+    Object scopeOf(T node);
+
+    void assignScope(T node, Object scope);
+
+    /**
+     * Adds {@code deltas}, keyed by aggregate field, to the aggregates of every node strictly enclosing
+     * [left, right], i.e. the ancestors of the node stored there. Does nothing for a table without aggregates.
+     */
+    void addToAncestors(Object scope, Integer left, Integer right, Map<String, Long> deltas);
+
+    /**
+     * Returns the values the node contributes to the aggregates of its ancestors, keyed by aggregate field.
+     * Empty for a table without aggregates.
+     */
+    Map<String, Long> contributionOf(T node);
+
+    /**
+     * Whether the entity has {@link com.coolstuff.core.nestedset.columns.AggregateColumn} fields.
+     */
+    boolean hasAggregates();
+
+    Map<String, Long> aggregatesOf(T node);
+
+    void assignAggregates(T node, Map<String, Long> aggregates);
 }
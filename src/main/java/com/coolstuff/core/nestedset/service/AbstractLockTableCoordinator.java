@@ -0,0 +1,94 @@
+package com.coolstuff.core.nestedset.service;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base for coordinators that work on one row per tree in a shared lock table:
+ * <pre>
+ * CREATE TABLE nested_set_lock (tree_key VARCHAR(255) PRIMARY KEY, version BIGINT NOT NULL)
+ * </pre>
+ * Missing rows are inserted on first use in a transaction of their own.
+ */
+public abstract class AbstractLockTableCoordinator implements MutationCoordinator {
+    private final EntityManager entityManager;
+    private final TransactionTemplate requiresNew;
+    private final String table;
+    private final Set<String> knownKeys = ConcurrentHashMap.newKeySet();
+
+    protected AbstractLockTableCoordinator(EntityManager entityManager, PlatformTransactionManager transactionManager, String table) {
+        this.entityManager = entityManager;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.table = table;
+    }
+
+    @Override
+    public void lock(String treeKey) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new RuntimeException("Tree mutations must run inside a transaction");
+        }
+        LockKey key = new LockKey(this, treeKey);
+        if (TransactionSynchronizationManager.hasResource(key)) {
+            return;
+        }
+        ensureRow(treeKey);
+        TransactionSynchronizationManager.bindResource(key, treeKey);
+        lockRow(treeKey, () -> TransactionSynchronizationManager.unbindResourceIfPossible(key));
+    }
+
+    /**
+     * Takes the tree for the current transaction. {@code release} has to be run once the transaction completes.
+     */
+    protected abstract void lockRow(String treeKey, Runnable release);
+
+    protected Long selectVersion(String treeKey, boolean forUpdate) {
+        List<?> versions = entityManager.createNativeQuery("SELECT version FROM " + table + " WHERE tree_key = ?1"
+                        + (forUpdate ? " FOR UPDATE" : ""))
+                .setParameter(1, treeKey)
+                .getResultList();
+        if (versions.isEmpty()) {
+            throw new RuntimeException("Lock row for tree " + treeKey + " is missing");
+        }
+        return ((Number) versions.getFirst()).longValue();
+    }
+
+    protected int incrementVersion(String treeKey, Long expected) {
+        return entityManager.createNativeQuery("UPDATE " + table + " SET version = version + 1 WHERE tree_key = ?1 AND version = ?2")
+                .setParameter(1, treeKey)
+                .setParameter(2, expected)
+                .executeUpdate();
+    }
+
+    private void ensureRow(String treeKey) {
+        if (knownKeys.contains(treeKey)) {
+            return;
+        }
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                boolean exists = !entityManager.createNativeQuery("SELECT tree_key FROM " + table + " WHERE tree_key = ?1")
+                        .setParameter(1, treeKey)
+                        .getResultList()
+                        .isEmpty();
+                if (!exists) {
+                    entityManager.createNativeQuery("INSERT INTO " + table + " (tree_key, version) VALUES (?1, 0)")
+                            .setParameter(1, treeKey)
+                            .executeUpdate();
+                }
+            });
+            knownKeys.add(treeKey);
+        } catch (RuntimeException concurrentInsert) {
+            // another writer created the row first, locking it fails if that is not the case
+        }
+    }
+
+    private record LockKey(AbstractLockTableCoordinator coordinator, String treeKey) {
+    }
+}
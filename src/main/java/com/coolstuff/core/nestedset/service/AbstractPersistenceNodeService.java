@@ -1,38 +1,168 @@
 package com.coolstuff.core.nestedset.service;
 
 import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
 import com.coolstuff.core.nestedset.repository.JpaNodeRepository;
 import com.coolstuff.core.nestedset.repository.NodeRepository;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.BoundariesShifted;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.NodeUpdated;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.NodesInserted;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.SubtreeDeleted;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.SubtreeMoved;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.TreeInvalidated;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 @RequiredArgsConstructor
 public abstract class AbstractPersistenceNodeService<T extends NodeComponent, ID> implements PersistenceNodeService<T, ID> {
     private final JpaNodeRepository<T, ID> jpaNodeRepository;
 
+    @Setter
+    private NumberingMode numberingMode = NumberingMode.DENSE;
+
+    /**
+     * Distance kept between siblings and before the rgt of a parent when {@link NumberingMode#SPARSE} is used.
+     */
+    @Setter
+    private int numberingGap = 32;
+
+    /**
+     * Optional cache for {@link #findPathViews(Object)}. It is cleared whenever the structure or a node changes.
+     */
+    @Setter
+    private PathCache<ID> pathCache;
+
+    /**
+     * Optional in-memory max(rgt). When set, appending a root needs no read at all. It assumes this service
+     * is the only writer of the table and is reseeded at startup and after a rolled back mutation.
+     */
+    @Setter
+    private TreeExtentCounter treeExtent;
+
+    /**
+     * Optional coordination of concurrent writers. Without one, structural changes must not run concurrently.
+     */
+    @Setter
+    private MutationCoordinator mutationCoordinator;
+
+    /**
+     * Identifies this table to the {@link #mutationCoordinator}. Services of different tables need different keys,
+     * the trees of a scoped table are locked one by one under this key and their scope.
+     */
+    private String treeKey = "default";
+
+    /**
+     * Receives a {@code nestedset.mutation} timer per structural operation, tagged with the {@link #treeKey}.
+     * The time is measured inside the transaction, so it does not include the commit.
+     */
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Optional receiver of the {@link TreeChanges} of every committed transaction, so copies of the tree can be
+     * patched with a {@link TreeChangeApplier} instead of being read again.
+     */
+    @Setter
+    private TreeChangeSink treeChangeSink;
+
+    private final Object pendingChangesKey = new Object();
+
+    private final Map<Object, TreeExtentCounter> scopedTreeExtents = new ConcurrentHashMap<>();
+
+    private final List<TreeChangeListener> treeChangeListeners = new CopyOnWriteArrayList<>();
+
+    public void addTreeChangeListener(TreeChangeListener listener) {
+        treeChangeListeners.add(listener);
+    }
+
+    private <R> R timed(String operation, Supplier<R> mutation) {
+        return timer(operation).record(mutation);
+    }
+
+    private void timed(String operation, Runnable mutation) {
+        timer(operation).record(mutation);
+    }
+
+    private Timer timer(String operation) {
+        return timers.computeIfAbsent(operation, name -> Timer.builder("nestedset.mutation")
+                .tag("tree", treeKey)
+                .tag("operation", name)
+                .register(meterRegistry));
+    }
+
+    public void setTreeKey(String treeKey) {
+        this.treeKey = treeKey;
+        timers.clear();
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        timers.clear();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reseedTreeExtent() {
+        if (treeExtent != null) {
+            treeExtent.reseed(jpaNodeRepository.findMaxRight());
+            scopedTreeExtents.clear();
+        }
+    }
+
     @Override
     @Transactional
     public T createNode(T entity) {
-        Integer right = jpaNodeRepository.findMaxRight();
-        if (right == null) {
-            right = 0;
-        }
-        right++;
+        return timed("createNode", () -> {
+            Object scope = jpaNodeRepository.scopeOf(entity);
+            lockTree(scope);
+            Integer right = appendAfterLastRoot(scope, 2);
 
-        entity.setLft(right);
-        entity.setRgt(right + 1);
-        entity.setDepth(0);
+            entity.setLft(right);
+            entity.setRgt(right + 1);
+            entity.setDepth(0);
+            rollUp(List.of(entity));
+            treeChanged();
 
-        return jpaNodeRepository.save(entity);
+            T saved = jpaNodeRepository.save(entity);
+            publish(new NodesInserted(scope, List.of(NodeView.of(saved))));
+            return saved;
+        });
     }
 
     @Transactional
     @Override
     public T updateNode(ID id, T entity) {
         entity = jpaNodeRepository.findById(id).orElseThrow(() -> new RuntimeException("Node is not found"));
-        return jpaNodeRepository.save(entity);
+        treeChanged();
+        T saved = jpaNodeRepository.save(entity);
+        publish(new NodeUpdated(jpaNodeRepository.scopeOf(saved), NodeView.of(saved)));
+        return saved;
     }
 
     @Override
@@ -40,33 +170,656 @@ public abstract class AbstractPersistenceNodeService<T extends NodeComponent, ID
         return jpaNodeRepository.findById(id);
     }
 
+    @Override
+    public List<T> findPath(ID id) {
+        return jpaNodeRepository.findParentOf(id);
+    }
+
+    @Override
+    public List<NodeView> findPathViews(ID id) {
+        if (pathCache == null) {
+            return jpaNodeRepository.findPathViews(id);
+        }
+        return pathCache.get(id, jpaNodeRepository::findPathViews);
+    }
+
     @Override
     @Transactional
     public T createNode(T entity, ID parentId) {
-        T rootNode = jpaNodeRepository.findById(parentId).orElseThrow(() -> new RuntimeException("Parent not found"));
-        Integer right = rootNode.getRgt();
+        return timed("createNode", () -> {
+            lockTreeOf(parentId);
+            T rootNode = jpaNodeRepository.findById(parentId).orElseThrow(() -> new RuntimeException("Parent not found"));
+            Object scope = jpaNodeRepository.scopeOf(rootNode);
+            jpaNodeRepository.assignScope(entity, scope);
+            Integer right;
+            if (numberingMode == NumberingMode.SPARSE) {
+                right = reserveSparseSlot(rootNode);
+                extentUnknown(scope);
+                publish(new TreeInvalidated(scope));
+            } else {
+                right = rootNode.getRgt();
+                jpaNodeRepository.shiftBoundariesFrom(scope, right, 2);
+                extentChanged(scope, 2);
+                publish(new BoundariesShifted(scope, right, 2));
+            }
+
+            entity.setLft(right);
+            entity.setRgt(right + 1);
+            entity.setDepth(rootNode.getDepth() + 1);
+            jpaNodeRepository.addToAncestors(scope, entity.getLft(), entity.getRgt(), rollUp(List.of(entity)));
+            treeChanged();
+
+            T saved = jpaNodeRepository.save(entity);
+            if (numberingMode == NumberingMode.DENSE) {
+                publish(new NodesInserted(scope, List.of(NodeView.of(saved))));
+            }
+            return saved;
+        });
+    }
+
+    /**
+     * Appends each node as the last child of its parent, like repeated {@link #createNode(NodeComponent, Object)}
+     * calls. In dense mode the gaps for all parents of a tree are opened with one UPDATE and the nodes are
+     * numbered in memory. Sparse inserts rarely shift anything, so they are applied one by one.
+     */
+    @Override
+    @Transactional
+    public List<T> createNodes(List<NodeInsert<T, ID>> inserts) {
+        return timed("createNodes", () -> {
+            if (numberingMode == NumberingMode.SPARSE) {
+                return inserts.stream().map(insert -> createNode(insert.node(), insert.parentId())).toList();
+            }
+            List<ID> parentIds = inserts.stream().map(NodeInsert::parentId).distinct().toList();
+            lockTreesOf(parentIds);
+            Map<ID, T> parents = new HashMap<>();
+            Map<Object, NavigableMap<Integer, Integer>> gaps = new HashMap<>();
+            for (ID parentId : parentIds) {
+                T parent = jpaNodeRepository.findById(parentId).orElseThrow(() -> new RuntimeException("Parent not found"));
+                parents.put(parentId, parent);
+                gaps.computeIfAbsent(jpaNodeRepository.scopeOf(parent), scope -> new TreeMap<>()).put(parent.getRgt(), 0);
+            }
+            for (NodeInsert<T, ID> insert : inserts) {
+                T parent = parents.get(insert.parentId());
+                gaps.get(jpaNodeRepository.scopeOf(parent)).merge(parent.getRgt(), 2, Integer::sum);
+            }
+
+            // the gap of a parent starts at its old rgt, moved by every gap opened in front of it
+            Map<ID, Integer> nextLeft = new HashMap<>();
+            for (ID parentId : parentIds) {
+                T parent = parents.get(parentId);
+                int before = gaps.get(jpaNodeRepository.scopeOf(parent)).headMap(parent.getRgt(), false).values().stream()
+                        .mapToInt(Integer::intValue)
+                        .sum();
+                nextLeft.put(parentId, parent.getRgt() + before);
+            }
+            List<T> nodes = new ArrayList<>(inserts.size());
+            for (NodeInsert<T, ID> insert : inserts) {
+                T parent = parents.get(insert.parentId());
+                T node = insert.node();
+                int left = nextLeft.merge(insert.parentId(), 2, Integer::sum) - 2;
+                node.setLft(left);
+                node.setRgt(left + 1);
+                node.setDepth(parent.getDepth() + 1);
+                jpaNodeRepository.assignScope(node, jpaNodeRepository.scopeOf(parent));
+                nodes.add(node);
+            }
+
+            gaps.forEach((scope, widths) -> {
+                jpaNodeRepository.openGaps(scope, widths);
+                extentChanged(scope, widths.values().stream().mapToInt(Integer::intValue).sum());
+                // shifting the highest gap first leaves the lower boundaries where they were
+                widths.descendingMap().forEach((from, width) -> publish(new BoundariesShifted(scope, from, width)));
+            });
+            // the new leaves of one parent share their ancestors, so each parent chain is updated once
+            Map<ID, T> firstChildren = new HashMap<>();
+            Map<ID, Map<String, Long>> contributions = new HashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                ID parentId = inserts.get(i).parentId();
+                firstChildren.putIfAbsent(parentId, nodes.get(i));
+                rollUp(List.of(nodes.get(i))).forEach((aggregate, value) ->
+                        contributions.computeIfAbsent(parentId, id -> new HashMap<>()).merge(aggregate, value, Long::sum));
+            }
+            contributions.forEach((parentId, contribution) -> {
+                T child = firstChildren.get(parentId);
+                jpaNodeRepository.addToAncestors(jpaNodeRepository.scopeOf(child), child.getLft(), child.getRgt(), contribution);
+            });
+            treeChanged();
+
+            List<T> saved = jpaNodeRepository.saveAll(nodes);
+            Map<Object, List<NodeView>> inserted = new LinkedHashMap<>();
+            saved.stream()
+                    .sorted(Comparator.comparing(NodeComponent::getLft))
+                    .forEach(node -> inserted.computeIfAbsent(jpaNodeRepository.scopeOf(node), scope -> new ArrayList<>()).add(NodeView.of(node)));
+            inserted.forEach((scope, views) -> publish(new NodesInserted(scope, views)));
+            return saved;
+        });
+    }
+
+    /**
+     * Inserts a batch of nodes under {@code parentId} with a single boundary shift. The nodes are given in
+     * pre-order and their depth is read relative to the parent, so 0 marks a direct child of the parent.
+     */
+    @Override
+    @Transactional
+    public List<T> createSubtree(ID parentId, List<T> nodesInPreOrder) {
+        return timed("createSubtree", () -> {
+            if (nodesInPreOrder.isEmpty()) {
+                return List.of();
+            }
+            lockTreeOf(parentId);
+            T parent = jpaNodeRepository.findById(parentId).orElseThrow(() -> new RuntimeException("Parent not found"));
+            Object scope = jpaNodeRepository.scopeOf(parent);
+            nodesInPreOrder.forEach(node -> jpaNodeRepository.assignScope(node, scope));
+            Integer right = parent.getRgt();
+
+            jpaNodeRepository.shiftBoundariesFrom(scope, right, nodesInPreOrder.size() * 2);
+            extentChanged(scope, nodesInPreOrder.size() * 2);
+            layoutPreOrder(nodesInPreOrder, right, parent.getDepth() + 1);
+            T first = nodesInPreOrder.getFirst();
+            jpaNodeRepository.addToAncestors(scope, first.getLft(), first.getRgt(), rollUp(nodesInPreOrder));
+            treeChanged();
+
+            List<T> saved = jpaNodeRepository.saveAll(nodesInPreOrder);
+            publish(new BoundariesShifted(scope, right, nodesInPreOrder.size() * 2));
+            publish(new NodesInserted(scope, saved.stream().map(NodeView::of).toList()));
+            return saved;
+        });
+    }
+
+    /**
+     * Persists an in-memory tree as a new root. Every component is converted with {@code toEntity}, which only
+     * needs to copy the entity fields, and numbered in memory, so the whole import needs no boundary shift at all.
+     * The new tree is stored in the scope that {@code toEntity} gave the root.
+     */
+    @Override
+    @Transactional
+    public List<T> importTree(NodeComponent root, Function<NodeComponent, T> toEntity) {
+        return timed("importTree", () -> {
+            List<T> nodes = new ArrayList<>();
+            Deque<NodeComponent> pending = new ArrayDeque<>();
+            Deque<Integer> depths = new ArrayDeque<>();
+            pending.push(root);
+            depths.push(0);
+            while (!pending.isEmpty()) {
+                NodeComponent component = pending.pop();
+                Integer depth = depths.pop();
+                T entity = toEntity.apply(component);
+                entity.setDepth(depth);
+                nodes.add(entity);
+
+                List<NodeComponent> children = childrenOf(component);
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                    depths.push(depth + 1);
+                }
+            }
+
+            Object scope = jpaNodeRepository.scopeOf(nodes.getFirst());
+            nodes.forEach(node -> jpaNodeRepository.assignScope(node, scope));
+            lockTree(scope);
+            layoutPreOrder(nodes, appendAfterLastRoot(scope, nodes.size() * 2), 0);
+            rollUp(nodes);
+            treeChanged();
+
+            List<T> saved = jpaNodeRepository.saveAll(nodes);
+            publish(new NodesInserted(scope, saved.stream().map(NodeView::of).toList()));
+            return saved;
+        });
+    }
+
+    private List<NodeComponent> childrenOf(NodeComponent component) {
+        if (component.getLft() != null && component.getRgt() != null && component.getRgt() == component.getLft() + 1) {
+            return List.of();
+        }
+        try {
+            List<NodeComponent> children = new ArrayList<>(component.getChildren());
+            children.sort(Comparator.comparing(NodeComponent::getLft, Comparator.nullsLast(Comparator.naturalOrder())));
+            return children;
+        } catch (UnsupportedOperationException leaf) {
+            return List.of();
+        }
+    }
 
-        jpaNodeRepository.incrementLeftBoundaryAfter(right);
-        jpaNodeRepository.incrementRightBoundaryAfter(right);
+    /**
+     * Sets the aggregates of nodes that are numbered but not stored yet from their own contributions and
+     * returns what the topmost of them add to the ancestors they are inserted under.
+     */
+    private Map<String, Long> rollUp(List<T> laidOut) {
+        int size = laidOut.size();
+        List<Map<String, Long>> totals = new ArrayList<>(size);
+        int[] parents = new int[size];
+        Deque<Integer> open = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            T node = laidOut.get(i);
+            while (!open.isEmpty() && laidOut.get(open.peek()).getRgt() < node.getLft()) {
+                open.pop();
+            }
+            parents[i] = open.isEmpty() ? -1 : open.peek();
+            totals.add(new HashMap<>(jpaNodeRepository.contributionOf(node)));
+            open.push(i);
+        }
+
+        // children come after their parent, so walking backwards completes every total before it is added upwards
+        Map<String, Long> top = new HashMap<>();
+        for (int i = size - 1; i >= 0; i--) {
+            Map<String, Long> target = parents[i] < 0 ? top : totals.get(parents[i]);
+            totals.get(i).forEach((aggregate, value) -> target.merge(aggregate, value, Long::sum));
+            jpaNodeRepository.assignAggregates(laidOut.get(i), totals.get(i));
+        }
+        return top;
+    }
 
-        entity.setLft(right);
-        entity.setRgt(right + 1);
-        entity.setDepth(rootNode.getDepth() + 1);
+    private Map<String, Long> negated(Map<String, Long> values) {
+        Map<String, Long> negated = new HashMap<>();
+        values.forEach((key, value) -> negated.put(key, -value));
+        return negated;
+    }
 
-        return jpaNodeRepository.save(entity);
+    private void layoutPreOrder(List<T> nodes, Integer start, Integer baseDepth) {
+        Deque<T> open = new ArrayDeque<>();
+        int counter = start;
+        for (T node : nodes) {
+            int depth = node.getDepth() == null ? 0 : node.getDepth();
+            if (depth > open.size()) {
+                throw new RuntimeException("Node " + node.getName() + " skips a level in the pre-order list");
+            }
+            while (open.size() > depth) {
+                open.pop().setRgt(counter++);
+            }
+            node.setLft(counter++);
+            node.setDepth(baseDepth + depth);
+            open.push(node);
+        }
+        while (!open.isEmpty()) {
+            open.pop().setRgt(counter++);
+        }
     }
 
     @Override
     @Transactional
     public void deleteNode(ID id) {
-        T category = jpaNodeRepository.findById(id).orElseThrow(() -> new RuntimeException("Node not found"));
-        Integer left = category.getLft();
-        Integer right = category.getRgt();
-        Integer width = right - left + 1;
+        timed("deleteNode", () -> {
+            lockTreeOf(id);
+            T category = jpaNodeRepository.findById(id).orElseThrow(() -> new RuntimeException("Node not found"));
+            Object scope = jpaNodeRepository.scopeOf(category);
+            Integer left = category.getLft();
+            Integer right = category.getRgt();
+            Integer width = right - left + 1;
+            treeChanged();
+            jpaNodeRepository.addToAncestors(scope, left, right, negated(jpaNodeRepository.aggregatesOf(category)));
+
+            if (numberingMode == NumberingMode.SPARSE) {
+                Optional<T> parent = jpaNodeRepository.findParentByRange(scope, left, right);
+                jpaNodeRepository.deleteNodesInRange(scope, left, right);
+                parent.ifPresent(this::tightenIfChildless);
+                extentUnknown(scope);
+                publish(new TreeInvalidated(scope));
+                return;
+            }
 
-        jpaNodeRepository.deleteNodesInRange(left, right);
+            jpaNodeRepository.deleteNodesInRange(scope, left, right);
+
+            jpaNodeRepository.shiftBoundariesFrom(scope, right + 1, -width);
+            extentChanged(scope, -width);
+            publish(new SubtreeDeleted(scope, left, right));
+            publish(new BoundariesShifted(scope, right + 1, -width));
+        });
+    }
+
+    @Override
+    @Transactional
+    public T moveNode(ID id, ID newParentId, MovePosition position) {
+        return timed("moveNode", () -> {
+            lockTreeOf(id);
+            T parent = jpaNodeRepository.findById(newParentId).orElseThrow(() -> new RuntimeException("Parent not found"));
+            Integer target = position == MovePosition.FIRST_CHILD ? parent.getLft() + 1 : parent.getRgt();
+            return moveTo(id, target, parent.getDepth() + 1, jpaNodeRepository.scopeOf(parent));
+        });
+    }
+
+    @Override
+    @Transactional
+    public T moveBefore(ID id, ID siblingId) {
+        return timed("moveBefore", () -> {
+            lockTreeOf(id);
+            T sibling = jpaNodeRepository.findById(siblingId).orElseThrow(() -> new RuntimeException("Sibling not found"));
+            return moveTo(id, sibling.getLft(), sibling.getDepth(), jpaNodeRepository.scopeOf(sibling));
+        });
+    }
 
-        jpaNodeRepository.decrementRightBoundaryAfter(right, width);
-        jpaNodeRepository.decrementLeftBoundaryAfter(right, width);
+    @Override
+    @Transactional
+    public T moveAfter(ID id, ID siblingId) {
+        return timed("moveAfter", () -> {
+            lockTreeOf(id);
+            T sibling = jpaNodeRepository.findById(siblingId).orElseThrow(() -> new RuntimeException("Sibling not found"));
+            return moveTo(id, sibling.getRgt() + 1, sibling.getDepth(), jpaNodeRepository.scopeOf(sibling));
+        });
+    }
+
+    private T moveTo(ID id, Integer target, Integer depth, Object targetScope) {
+        T node = jpaNodeRepository.findById(id).orElseThrow(() -> new RuntimeException("Node not found"));
+        Object scope = jpaNodeRepository.scopeOf(node);
+        if (!Objects.equals(scope, targetScope)) {
+            throw new RuntimeException("Node cannot be moved into another tree");
+        }
+        Integer left = node.getLft();
+        Integer right = node.getRgt();
+        if (target > left && target <= right) {
+            throw new RuntimeException("Node cannot be moved into its own subtree");
+        }
+
+        treeChanged();
+        Optional<T> oldParent = numberingMode == NumberingMode.SPARSE
+                ? jpaNodeRepository.findParentByRange(scope, left, right)
+                : Optional.empty();
+        Map<String, Long> aggregates = jpaNodeRepository.aggregatesOf(node);
+        jpaNodeRepository.addToAncestors(scope, left, right, negated(aggregates));
+        int depthDelta = depth - node.getDepth();
+        jpaNodeRepository.moveSubtree(scope, left, right, target, depthDelta);
+        jpaNodeRepository.addToAncestors(scope, node.getLft(), node.getRgt(), aggregates);
+        oldParent.ifPresent(this::tightenIfChildless);
+        if (numberingMode == NumberingMode.SPARSE) {
+            extentUnknown(scope);
+            publish(new TreeInvalidated(scope));
+        } else {
+            publish(new SubtreeMoved(scope, left, right, target, depthDelta));
+        }
+        return node;
+    }
+
+    /**
+     * Renumbers a subtree. In sparse mode every node gets {@link #numberingGap} free values after it and
+     * before the rgt of its parent, in dense mode the subtree is compacted. The subtree only grows into
+     * the space behind it when it has to, so the rest of the tree is shifted at most once.
+     */
+    @Override
+    @Transactional
+    public void rebalance(ID subtreeId) {
+        timed("rebalance", () -> {
+            lockTreeOf(subtreeId);
+            T node = jpaNodeRepository.findById(subtreeId).orElseThrow(() -> new RuntimeException("Node not found"));
+            treeChanged();
+            extentUnknown(jpaNodeRepository.scopeOf(node));
+            rebalance(node);
+            publish(new TreeInvalidated(jpaNodeRepository.scopeOf(node)));
+        });
+    }
+
+    /**
+     * Repairs the numbering of a tree with {@link NestedSetValidator#rebuild(Object)} while holding its lock. When
+     * rows were renumbered, cached paths and the tree extent are dropped, the aggregates are computed again and a
+     * {@link TreeInvalidated} is published. Returns the number of rows renumbered.
+     */
+    @Override
+    @Transactional
+    public int rebuild(NestedSetValidator<T> validator, Object scope) {
+        return timed("rebuild", () -> {
+            lockTree(scope);
+            int renumbered = validator.rebuild(scope);
+            if (renumbered > 0) {
+                treeChanged();
+                extentUnknown(scope);
+                recomputeAggregates(scope);
+                publish(new TreeInvalidated(scope));
+            }
+            return renumbered;
+        });
+    }
+
+    /**
+     * Sets every aggregate of a densely numbered tree from the contributions of its nodes again.
+     */
+    private void recomputeAggregates(Object scope) {
+        if (jpaNodeRepository.hasAggregates()) {
+            rollUp(jpaNodeRepository.findChildren(scope, 1, jpaNodeRepository.findMaxRight(scope)));
+        }
+    }
+
+    private void rebalance(T subtreeRoot) {
+        Object scope = jpaNodeRepository.scopeOf(subtreeRoot);
+        List<T> nodes = jpaNodeRepository.findChildren(scope, subtreeRoot.getLft(), subtreeRoot.getRgt());
+        if (nodes.size() < 2) {
+            return;
+        }
+        int gap = numberingMode == NumberingMode.SPARSE ? numberingGap : 1;
+        int[] lefts = new int[nodes.size()];
+        int[] rights = new int[nodes.size()];
+        boolean[] composite = new boolean[nodes.size()];
+        Deque<Integer> open = new ArrayDeque<>();
+        int counter = subtreeRoot.getLft() - gap;
+
+        for (int i = 0; i < nodes.size(); i++) {
+            while (!open.isEmpty() && nodes.get(open.peek()).getDepth() >= nodes.get(i).getDepth()) {
+                counter = close(open.pop(), counter, gap, lefts, rights, composite);
+            }
+            if (!open.isEmpty()) {
+                composite[open.peek()] = true;
+            }
+            counter += gap;
+            lefts[i] = counter;
+            open.push(i);
+        }
+        while (!open.isEmpty()) {
+            counter = close(open.pop(), counter, gap, lefts, rights, composite);
+        }
+
+        int oldRight = subtreeRoot.getRgt();
+        if (rights[0] > oldRight) {
+            Integer next = jpaNodeRepository.findNextBoundaryAfter(scope, oldRight);
+            if (next != null && next <= rights[0]) {
+                jpaNodeRepository.shiftBoundariesFrom(scope, oldRight + 1, rights[0] - next + gap);
+            }
+        } else if (numberingMode == NumberingMode.SPARSE) {
+            // a sparse subtree keeps the room it already owns
+            rights[0] = oldRight;
+        } else if (rights[0] < oldRight) {
+            jpaNodeRepository.shiftBoundariesFrom(scope, oldRight + 1, rights[0] - oldRight);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).setLft(lefts[i]);
+            nodes.get(i).setRgt(rights[i]);
+        }
+    }
+
+    private int close(int index, int counter, int gap, int[] lefts, int[] rights, boolean[] composite) {
+        rights[index] = composite[index] ? counter + gap : lefts[index] + 1;
+        return rights[index];
+    }
+
+    /**
+     * Finds the lft for a new last child of {@code parent} without shifting the tree. The free space inside the
+     * parent is used first, then the parent grows into the gap behind it, and only when both are exhausted the
+     * enclosing subtree is rebalanced.
+     */
+    private Integer reserveSparseSlot(T parent) {
+        if (!hasRoomForChild(parent) && !growIntoNextGap(parent)) {
+            Object scope = jpaNodeRepository.scopeOf(parent);
+            Optional<T> grandParent = jpaNodeRepository.findParentByRange(scope, parent.getLft(), parent.getRgt());
+            if (grandParent.isPresent()) {
+                rebalance(grandParent.get());
+            } else {
+                jpaNodeRepository.shiftBoundariesFrom(scope, parent.getRgt() + 1, numberingGap * 2);
+            }
+            if (!hasRoomForChild(parent) && !growIntoNextGap(parent)) {
+                throw new RuntimeException("No room left under " + parent.getName());
+            }
+        }
+
+        int after = lastBoundaryInside(parent);
+        int free = parent.getRgt() - after - 1;
+        return after + Math.max(1, Math.min(numberingGap, (free - 1) / 2));
+    }
+
+    private boolean hasRoomForChild(T parent) {
+        return parent.getRgt() - lastBoundaryInside(parent) >= 3;
+    }
+
+    private boolean growIntoNextGap(T parent) {
+        int after = lastBoundaryInside(parent);
+        int required = after + 3 - parent.getRgt();
+        int desired = after + numberingGap * 2 - parent.getRgt();
+        Integer next = jpaNodeRepository.findNextBoundaryAfter(jpaNodeRepository.scopeOf(parent), parent.getRgt());
+        int growth = Math.max(required, desired);
+        if (next != null) {
+            int available = next - parent.getRgt() - 1;
+            growth = Math.max(required, Math.min(desired, available / 2));
+            if (growth > available) {
+                return false;
+            }
+        }
+        parent.setRgt(parent.getRgt() + growth);
+        return true;
+    }
+
+    private int lastBoundaryInside(T parent) {
+        Integer lastRight = jpaNodeRepository.findMaxRightWithin(jpaNodeRepository.scopeOf(parent), parent.getLft(), parent.getRgt());
+        return lastRight == null ? parent.getLft() : lastRight;
+    }
+
+    /**
+     * Returns the first lft of {@code width} values appended behind the last root of the scope.
+     */
+    private Integer appendAfterLastRoot(Object scope, int width) {
+        int step = numberingMode == NumberingMode.SPARSE ? numberingGap : 1;
+        TreeExtentCounter extent = extentOf(scope);
+        if (extent == null) {
+            return jpaNodeRepository.findMaxRight(scope) + step;
+        }
+        int start = extent.reserve(step - 1 + width, () -> jpaNodeRepository.findMaxRight(scope)) + step;
+        onCompletion(status -> {
+            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                extent.reset();
+            }
+        });
+        return start;
+    }
+
+    private void extentChanged(Object scope, int delta) {
+        TreeExtentCounter extent = extentOf(scope);
+        if (extent != null) {
+            extent.adjust(delta);
+            onCompletion(status -> {
+                if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                    extent.reset();
+                }
+            });
+        }
+    }
+
+    private void extentUnknown(Object scope) {
+        TreeExtentCounter extent = extentOf(scope);
+        if (extent != null) {
+            extent.reset();
+            onCompletion(status -> extent.reset());
+        }
+    }
+
+    /**
+     * Every tree of a scoped table keeps its own counter, seeded lazily from its max(rgt).
+     */
+    private TreeExtentCounter extentOf(Object scope) {
+        if (treeExtent == null || scope == null) {
+            return treeExtent;
+        }
+        return scopedTreeExtents.computeIfAbsent(scope, key -> new TreeExtentCounter());
+    }
+
+    private void lockTree(Object scope) {
+        if (mutationCoordinator != null) {
+            mutationCoordinator.lock(scope == null ? treeKey : treeKey + ":" + scope);
+        }
+    }
+
+    /**
+     * Locks the trees of several stored nodes in a fixed order, so two batches cannot wait for each other.
+     */
+    private void lockTreesOf(List<ID> ids) {
+        if (mutationCoordinator != null) {
+            ids.stream()
+                    .map(jpaNodeRepository::findScopeOf)
+                    .distinct()
+                    .sorted(Comparator.comparing(String::valueOf))
+                    .forEach(this::lockTree);
+        }
+    }
+
+    /**
+     * Locks the tree of a stored node. Only the scope is read up front, the node itself has to be loaded
+     * after the lock is held.
+     */
+    private void lockTreeOf(ID id) {
+        if (mutationCoordinator != null) {
+            lockTree(jpaNodeRepository.findScopeOf(id));
+        }
+    }
+
+    private void onCompletion(IntConsumer callback) {
+        onCompletion(callback, false);
+    }
+
+    private void onCompletion(IntConsumer callback, boolean runWithoutTransaction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (runWithoutTransaction) {
+                callback.accept(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } else {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    callback.accept(status);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops cached paths now and again once the transaction completes, so readers that loaded the old
+     * structure while the transaction was open cannot leave stale entries behind. Listeners are only told
+     * once the transaction has completed, whatever its outcome.
+     */
+    private void treeChanged() {
+        if (pathCache != null) {
+            pathCache.invalidateAll();
+            onCompletion(status -> pathCache.invalidateAll());
+        }
+        if (!treeChangeListeners.isEmpty()) {
+            onCompletion(status -> treeChangeListeners.forEach(TreeChangeListener::onTreeChange), true);
+        }
+    }
+
+    /**
+     * Collects the event until the transaction commits and hands all events of the transaction to the
+     * {@link #treeChangeSink} at once. A rolled back transaction publishes nothing.
+     */
+    private void publish(TreeChangeEvent event) {
+        if (treeChangeSink == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            treeChangeSink.publish(new TreeChanges(treeKey, List.of(event)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<TreeChangeEvent> pending = (List<TreeChangeEvent>) TransactionSynchronizationManager.getResource(pendingChangesKey);
+        if (pending == null) {
+            List<TreeChangeEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(pendingChangesKey, events);
+            TreeChangeSink sink = treeChangeSink;
+            onCompletion(status -> {
+                TransactionSynchronizationManager.unbindResourceIfPossible(pendingChangesKey);
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    sink.publish(new TreeChanges(treeKey, List.copyOf(events)));
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    private void tightenIfChildless(T parent) {
+        if (jpaNodeRepository.findMaxRightWithin(jpaNodeRepository.scopeOf(parent), parent.getLft(), parent.getRgt()) == null) {
+            parent.setRgt(parent.getLft() + 1);
+        }
     }
-}
\ No newline at end of file
+}
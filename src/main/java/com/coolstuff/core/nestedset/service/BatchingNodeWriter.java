@@ -0,0 +1,192 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Queues inserts, deletes and moves and writes them in batches from a background thread. A batch is collected
+ * for at most {@code window} or {@code maxBatchSize} commands and applied in one transaction, where consecutive
+ * inserts go through {@link PersistenceNodeService#createNodes(List)} and share a single boundary shift per tree.
+ * Commands are applied in submission order and their futures complete once the batch is committed.
+ * <p>
+ * When a batch fails, its commands are repeated one transaction each, so only the failing command reports the
+ * error. Submitting never blocks, it is safe from any thread including virtual threads.
+ */
+public class BatchingNodeWriter<T extends NodeComponent, ID> implements AutoCloseable {
+    private final PersistenceNodeService<T, ID> service;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final BlockingQueue<Command<T, ID, ?>> queue = new LinkedBlockingQueue<>();
+    private final Command<T, ID, Void> stop = new Command<>(null, false, null);
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private final Thread worker;
+    private boolean closed;
+
+    public BatchingNodeWriter(PersistenceNodeService<T, ID> service, PlatformTransactionManager transactionManager) {
+        this(service, transactionManager, 500, Duration.ofMillis(10));
+    }
+
+    public BatchingNodeWriter(PersistenceNodeService<T, ID> service, PlatformTransactionManager transactionManager,
+                              int maxBatchSize, Duration window) {
+        this.service = service;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.worker = Thread.ofVirtual().name("nested-set-writer").start(this::run);
+    }
+
+    public CompletableFuture<T> insert(T node, ID parentId) {
+        return submit(new Command<>(new NodeInsert<>(node, parentId), node.getId() == null, null));
+    }
+
+    public CompletableFuture<Void> delete(ID id) {
+        return submit(new Command<>(null, false, service -> {
+            service.deleteNode(id);
+            return null;
+        }));
+    }
+
+    public CompletableFuture<T> move(ID id, ID newParentId, MovePosition position) {
+        return submit(new Command<>(null, false, service -> service.moveNode(id, newParentId, position)));
+    }
+
+    /**
+     * Stops accepting commands and waits until everything submitted so far is written.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closing.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                queue.add(stop);
+            }
+        } finally {
+            closing.writeLock().unlock();
+        }
+        worker.join();
+    }
+
+    private <R> CompletableFuture<R> submit(Command<T, ID, R> command) {
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                throw new RuntimeException("Writer is closed");
+            }
+            queue.add(command);
+        } finally {
+            closing.readLock().unlock();
+        }
+        return command.result;
+    }
+
+    private void run() {
+        List<Command<T, ID, ?>> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Command<T, ID, ?> next = queue.take();
+                long deadline = System.nanoTime() + windowNanos;
+                while (next != null) {
+                    if (next == stop) {
+                        // nothing is queued after the stop marker, so the batch collected so far is the last one
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                    if (batch.size() == maxBatchSize) {
+                        break;
+                    }
+                    next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        queue.forEach(command -> command.result.completeExceptionally(new RuntimeException("Writer is closed")));
+    }
+
+    private void write(List<Command<T, ID, ?>> batch) {
+        List<Object> results;
+        try {
+            results = transactionTemplate.execute(status -> apply(batch));
+        } catch (RuntimeException batchFailed) {
+            for (Command<T, ID, ?> command : batch) {
+                if (command.generatedId) {
+                    // the id generated by the rolled back attempt does not exist, the node is new again
+                    command.insert.node().setId(null);
+                }
+                try {
+                    command.complete(transactionTemplate.execute(status -> apply(List.of(command)).getFirst()));
+                } catch (RuntimeException e) {
+                    command.result.completeExceptionally(e);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results.get(i));
+        }
+    }
+
+    private List<Object> apply(List<Command<T, ID, ?>> batch) {
+        List<Object> results = new ArrayList<>(batch.size());
+        List<NodeInsert<T, ID>> inserts = new ArrayList<>();
+        for (Command<T, ID, ?> command : batch) {
+            if (command.insert != null) {
+                inserts.add(command.insert);
+                continue;
+            }
+            results.addAll(flush(inserts));
+            results.add(command.action.apply(service));
+        }
+        results.addAll(flush(inserts));
+        return results;
+    }
+
+    private List<T> flush(List<NodeInsert<T, ID>> inserts) {
+        if (inserts.isEmpty()) {
+            return List.of();
+        }
+        List<T> created = service.createNodes(List.copyOf(inserts));
+        inserts.clear();
+        return created;
+    }
+
+    private static class Command<T extends NodeComponent, ID, R> {
+        private final NodeInsert<T, ID> insert;
+        // an insert submitted without an id, which only gets one when it is written
+        private final boolean generatedId;
+        private final Function<PersistenceNodeService<T, ID>, R> action;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+
+        Command(NodeInsert<T, ID> insert, boolean generatedId, Function<PersistenceNodeService<T, ID>, R> action) {
+            this.insert = insert;
+            this.generatedId = generatedId;
+            this.action = action;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object value) {
+            result.complete((R) value);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.repository.JpaNodeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers {@link NodeFunctions} from immutable {@link NodeSnapshot}s, one per tree: the whole table, or each scope
+ * of a scoped table loaded with {@code findAllViews(scope)} as it is first read. Register it with
+ * {@link AbstractPersistenceNodeService#addTreeChangeListener} to load new snapshots when a mutating transaction
+ * completes; readers keep getting the previous snapshot until the new one is swapped in, so they never wait and
+ * never see a tree in the middle of an update. Only one load per tree runs at a time.
+ */
+public class CachedNodeFunctions<T extends NodeComponent, ID> implements NodeFunctions<T, ID>, TreeChangeListener, MeterBinder {
+    private static final Object UNSCOPED = new Object();
+
+    private final JpaNodeRepository<T, ID> jpaNodeRepository;
+    private final TreeBuilder treeBuilder;
+    private final NodeComponentFactory nodeComponentFactory;
+    private final boolean scoped;
+
+    /**
+     * Runs the loads that follow a change, so the thread that completed the change neither waits for them nor
+     * reads through the persistence context still bound to it. Defaults to the common pool; an application with
+     * its own task executor should pass that. The first load of a tree runs on the reader waiting for it.
+     */
+    @Setter
+    private Executor loadExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * Value of the {@code cache} tag on the hit and miss counters.
+     */
+    @Setter
+    private String name = "nodes";
+
+    private final Map<Object, TreeCache> trees = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachedNodeFunctions(JpaNodeRepository<T, ID> jpaNodeRepository, TreeBuilder treeBuilder,
+                               NodeComponentFactory nodeComponentFactory) {
+        this.jpaNodeRepository = jpaNodeRepository;
+        this.treeBuilder = treeBuilder;
+        this.nodeComponentFactory = nodeComponentFactory;
+        this.scoped = jpaNodeRepository.isScoped();
+    }
+
+    @Override
+    public Optional<NodeComponent> findImmediateChildren(ID nodeId) {
+        return treeBuilder.buildTree(snapshotOf(nodeId).getDescendants(nodeId, 1));
+    }
+
+    /**
+     * Builds the whole table. A scoped table has no single tree, use {@link #getAllNodes(Object)} instead.
+     */
+    @Override
+    public Optional<NodeComponent> getAllNodes() {
+        return getAllNodes(null);
+    }
+
+    public Optional<NodeComponent> getAllNodes(Object scope) {
+        return treeBuilder.buildTree(getSnapshot(scope).getAll());
+    }
+
+    @Override
+    public Optional<NodeComponent> findChilderenOf(ID nodeId) {
+        return treeBuilder.buildTree(snapshotOf(nodeId).getSubtree(nodeId));
+    }
+
+    @Override
+    public Optional<NodeComponent> findParentOf(ID id) {
+        return treeBuilder.buildTree(snapshotOf(id).getPath(id));
+    }
+
+    /**
+     * Returns the leaves below the node. The returned components are shared and must not be modified.
+     */
+    public List<NodeComponent> findLeavesOf(ID nodeId) {
+        return snapshotOf(nodeId).getLeaves(nodeId);
+    }
+
+    public NodeSnapshot getSnapshot() {
+        return getSnapshot(null);
+    }
+
+    /**
+     * Returns the snapshot of the tree stored under {@code scope}, which a scoped table requires.
+     */
+    public NodeSnapshot getSnapshot(Object scope) {
+        if (scope == null && scoped) {
+            throw new RuntimeException("Scope is required for a scoped table");
+        }
+        return trees.computeIfAbsent(scope == null ? UNSCOPED : scope, key -> new TreeCache(scope)).get();
+    }
+
+    /**
+     * Finds the snapshot holding the node. Only a node of a scoped table that no loaded snapshot holds costs
+     * a query, to read its scope.
+     */
+    private NodeSnapshot snapshotOf(ID id) {
+        if (!scoped) {
+            return getSnapshot(null);
+        }
+        for (TreeCache tree : trees.values()) {
+            NodeSnapshot current = tree.snapshot.get();
+            if (current != null && current.contains(id)) {
+                hits.increment();
+                return current;
+            }
+        }
+        Object scope = jpaNodeRepository.findScopeOf(id);
+        return scope == null ? NodeSnapshot.ofViews(List.of(), nodeComponentFactory) : getSnapshot(scope);
+    }
+
+    @Override
+    public void onTreeChange() {
+        invalidate();
+    }
+
+    /**
+     * Loads new snapshots of the trees read so far and swaps each in once it is complete.
+     */
+    public void invalidate() {
+        trees.values().forEach(TreeCache::invalidate);
+    }
+
+    /**
+     * Registers the {@code nestedset.snapshot.hits} and {@code nestedset.snapshot.misses} counters, tagged with
+     * the {@link #setName name} of this cache.
+     */
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("nestedset.snapshot.hits", hits, LongAdder::sum)
+                .description("Reads answered by the current snapshot")
+                .tag("cache", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("nestedset.snapshot.misses", misses, LongAdder::sum)
+                .description("Reads that waited for a snapshot to load")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private class TreeCache {
+        private final Object scope;
+        private final AtomicReference<NodeSnapshot> snapshot = new AtomicReference<>();
+        private final AtomicLong generation = new AtomicLong();
+        private CompletableFuture<NodeSnapshot> loading;
+
+        TreeCache(Object scope) {
+            this.scope = scope;
+        }
+
+        NodeSnapshot get() {
+            NodeSnapshot current = snapshot.get();
+            if (current != null) {
+                hits.increment();
+                return current;
+            }
+            misses.increment();
+            try {
+                return load(Runnable::run).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        void invalidate() {
+            generation.incrementAndGet();
+            // nothing is loaded before the first read
+            if (snapshot.get() != null) {
+                load(loadExecutor);
+            }
+        }
+
+        private CompletableFuture<NodeSnapshot> load(Executor executor) {
+            CompletableFuture<NodeSnapshot> load;
+            long loadedAt;
+            synchronized (this) {
+                if (loading != null) {
+                    return loading;
+                }
+                load = loading = new CompletableFuture<>();
+                loadedAt = generation.get();
+            }
+            executor.execute(() -> {
+                try {
+                    NodeSnapshot loaded = NodeSnapshot.ofViews(jpaNodeRepository.findAllViews(scope), nodeComponentFactory);
+                    snapshot.set(loaded);
+                    load.complete(loaded);
+                } catch (RuntimeException e) {
+                    // the next read loads again rather than keep serving a tree known to be stale
+                    snapshot.set(null);
+                    load.completeExceptionally(e);
+                }
+                synchronized (this) {
+                    loading = null;
+                }
+                // a change that completed while loading may be missing from the query
+                if (generation.get() != loadedAt && snapshot.get() != null) {
+                    load(loadExecutor);
+                }
+            });
+            return load;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds the tree in one pass over the lft ordered list. Open composites are kept on an explicit stack, so every
+ * node is visited once and deep trees cannot overflow the call stack.
+ */
+@RequiredArgsConstructor
+public class IterativeTreeBuilder implements TreeBuilder {
+    private final NodeComponentFactory nodeComponentFactory;
+
+    private TreeBuildMetrics metrics = new TreeBuildMetrics(Metrics.globalRegistry, "iterative");
+
+    /**
+     * Receives the {@code nestedset.tree.build} timer and the {@code nestedset.tree.build.nodes} summary.
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        metrics = new TreeBuildMetrics(meterRegistry, "iterative");
+    }
+
+    public Optional<NodeComponent> buildTree(List<NodeComponent> nodeList) {
+        return metrics.record(nodeList, () -> {
+            if (nodeList == null || nodeList.isEmpty()) {
+                return Optional.empty();
+            }
+
+            NodeComponent root = copy(nodeList.getFirst());
+            Deque<NodeComponent> open = new ArrayDeque<>();
+            open.push(root);
+
+            for (int i = 1; i < nodeList.size(); i++) {
+                NodeComponent source = nodeList.get(i);
+                while (!open.isEmpty() && open.peek().getRgt() < source.getLft()) {
+                    open.pop();
+                }
+                if (open.isEmpty()) {
+                    break;
+                }
+
+                NodeComponent parent = open.peek();
+                NodeComponent node = copy(source);
+                node.setParent(parent);
+                parent.addSubNode(node);
+                if (!isLeaf(node)) {
+                    open.push(node);
+                }
+            }
+            return Optional.of(root);
+        });
+    }
+
+    public List<NodeComponent> getLeafList(NodeComponent node) {
+        List<NodeComponent> leafNodes = new ArrayList<>();
+        if (node == null) {
+            return leafNodes;
+        }
+
+        Deque<NodeComponent> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            NodeComponent current = pending.pop();
+            if (isLeaf(current)) {
+                leafNodes.add(current);
+            } else {
+                List<NodeComponent> children = new ArrayList<>(current.getChildren());
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                }
+            }
+        }
+        return leafNodes;
+    }
+
+    private boolean isLeaf(NodeComponent node) {
+        return node.getRgt() == node.getLft() + 1;
+    }
+
+    private NodeComponent copy(NodeComponent source) {
+        NodeComponent node = isLeaf(source)
+                ? nodeComponentFactory.createLeafNodeComponent()
+                : nodeComponentFactory.createCompositeNodeComponent();
+        node.setId(source.getId());
+        node.setName(source.getName());
+        node.setLft(source.getLft());
+        node.setRgt(source.getRgt());
+        node.setDepth(source.getDepth());
+        return node;
+    }
+}
@@ -0,0 +1,209 @@
+package com.coolstuff.core.nestedset.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link TreeSnapshot} read straight from a memory-mapped file. Opening it costs one mmap call, no node is
+ * copied onto the heap and processes that map the same file share its pages through the OS page cache.
+ * <p>
+ * The file starts with a header of four ints (magic, version, node count, name length in chars), followed by
+ * the columns, each one value per node in lft order: ids and the ids sorted with their positions, lft, rgt,
+ * depth, parent, name start and name length. The names close the file as one UTF-16 char section.
+ */
+public class MappedTreeSnapshot implements TreeSnapshot {
+    private static final int MAGIC = 0x4E535453;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int ids;
+    private final int sortedIds;
+    private final int sortedIdIndexes;
+    private final int lefts;
+    private final int rights;
+    private final int depths;
+    private final int parents;
+    private final int nameStarts;
+    private final int nameLengths;
+    private final int names;
+
+    private MappedTreeSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new RuntimeException("File is not a tree snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new RuntimeException("Unsupported tree snapshot version " + buffer.getInt(4));
+        }
+        this.size = buffer.getInt(8);
+        this.ids = HEADER_BYTES;
+        this.sortedIds = ids + size * 8;
+        this.sortedIdIndexes = sortedIds + size * 8;
+        this.lefts = sortedIdIndexes + size * 4;
+        this.rights = lefts + size * 4;
+        this.depths = rights + size * 4;
+        this.parents = depths + size * 4;
+        this.nameStarts = parents + size * 4;
+        this.nameLengths = nameStarts + size * 4;
+        this.names = nameLengths + size * 4;
+        if ((long) names + buffer.getInt(12) * 2L != buffer.capacity()) {
+            throw new RuntimeException("Tree snapshot is truncated");
+        }
+    }
+
+    public static MappedTreeSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("Tree snapshot is larger than 2GB");
+            }
+            // the mapping stays valid after the channel is closed
+            return new MappedTreeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes {@code snapshot} to {@code file}. The file is written next to the target and moved into place,
+     * so a process opening it never maps a half written snapshot.
+     */
+    public static void write(TreeSnapshot snapshot, Path file) throws IOException {
+        int size = snapshot.size();
+        long[] ids = new long[size];
+        int[] nameLengths = new int[size];
+        long nameLength = 0;
+        for (int i = 0; i < size; i++) {
+            ids[i] = snapshot.getId(i);
+            String name = snapshot.getName(i);
+            nameLengths[i] = name == null ? -1 : name.length();
+            nameLength += name == null ? 0 : name.length();
+        }
+        if (HEADER_BYTES + size * 44L + nameLength * 2 > Integer.MAX_VALUE) {
+            throw new RuntimeException("Tree snapshot is larger than 2GB");
+        }
+        int[] order = PackedTree.orderById(ids);
+
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt((int) nameLength);
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+            for (int position : order) {
+                out.writeLong(ids[position]);
+            }
+            for (int position : order) {
+                out.writeInt(position);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(snapshot.getLft(i));
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(snapshot.getRgt(i));
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(snapshot.getDepth(i));
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(snapshot.getParent(i));
+            }
+            int start = 0;
+            for (int i = 0; i < size; i++) {
+                out.writeInt(start);
+                start += Math.max(nameLengths[i], 0);
+            }
+            for (int length : nameLengths) {
+                out.writeInt(length);
+            }
+            for (int i = 0; i < size; i++) {
+                String name = snapshot.getName(i);
+                if (name != null) {
+                    out.writeChars(name);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int indexOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(sortedIds + mid * 8);
+            if (value < id) {
+                low = mid + 1;
+            } else if (value > id) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(sortedIdIndexes + mid * 4);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long getId(int index) {
+        return buffer.getLong(ids + checked(index) * 8);
+    }
+
+    @Override
+    public int getLft(int index) {
+        return buffer.getInt(lefts + checked(index) * 4);
+    }
+
+    @Override
+    public int getRgt(int index) {
+        return buffer.getInt(rights + checked(index) * 4);
+    }
+
+    @Override
+    public int getDepth(int index) {
+        return buffer.getInt(depths + checked(index) * 4);
+    }
+
+    @Override
+    public int getParent(int index) {
+        return buffer.getInt(parents + checked(index) * 4);
+    }
+
+    @Override
+    public String getName(int index) {
+        int length = buffer.getInt(nameLengths + checked(index) * 4);
+        if (length < 0) {
+            return null;
+        }
+        int start = names + buffer.getInt(nameStarts + index * 4) * 2;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(start + i * 2);
+        }
+        return new String(chars);
+    }
+
+    private int checked(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+}
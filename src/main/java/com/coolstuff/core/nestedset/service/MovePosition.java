@@ -0,0 +1,6 @@
+package com.coolstuff.core.nestedset.service;
+
+public enum MovePosition {
+    FIRST_CHILD,
+    LAST_CHILD
+}
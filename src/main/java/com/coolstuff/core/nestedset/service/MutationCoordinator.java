@@ -0,0 +1,10 @@
+package com.coolstuff.core.nestedset.service;
+
+/**
+ * Serializes structural changes of one tree. {@link AbstractPersistenceNodeService} calls {@link #lock(String)}
+ * inside its transaction before it reads any lft or rgt, and the coordinator keeps the tree to that
+ * transaction until it completes.
+ */
+public interface MutationCoordinator {
+    void lock(String treeKey);
+}
@@ -0,0 +1,69 @@
+package com.coolstuff.core.nestedset.service;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Repeats a mutation that lost against a concurrent writer. Every attempt has to start its own transaction, so
+ * wrap calls of the transactional service and not code running inside of it.
+ */
+public class MutationRetry {
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public MutationRetry() {
+        this(10, 5);
+    }
+
+    public MutationRetry(int maxAttempts, long backoffMillis) {
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public <R> R run(Supplier<R> mutation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return mutation.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isConcurrencyFailure(e)) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    public void run(Runnable mutation) {
+        run(() -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    private boolean isConcurrencyFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof LockTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void backOff(int attempt) {
+        long bound = backoffMillis * Math.min(attempt, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying a tree mutation", interrupted);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.repository.AbstractNodeRepository;
+import com.coolstuff.core.nestedset.repository.NodeField;
+import jakarta.persistence.EntityManager;
+import lombok.Setter;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Checks and repairs the numbering of one tree. Both read the rows once in lft order through
+ * {@link AbstractNodeRepository#streamAll(Object)} and keep only the chain of open nodes, so memory grows with the
+ * depth of the tree rather than with its size. Both must run inside a transaction.
+ * <p>
+ * {@link #rebuild(Object)} on its own neither locks the tree nor tells anyone about the new numbering. A table
+ * written through an {@link AbstractPersistenceNodeService} is repaired with
+ * {@link AbstractPersistenceNodeService#rebuild(NestedSetValidator, Object)} instead, which also drops the cached
+ * paths and tree extent, recomputes the aggregates and publishes a {@link TreeChangeEvent.TreeInvalidated}.
+ */
+public class NestedSetValidator<T extends NodeComponent> {
+    private final AbstractNodeRepository<T, ?> repository;
+
+    /**
+     * Whether every value from 1 to 2n has to be used once. Turn it off for sparse numbered trees.
+     */
+    @Setter
+    private boolean contiguous = true;
+
+    /**
+     * Validation stops after this many violations.
+     */
+    @Setter
+    private int maxViolations = 100;
+
+    /**
+     * Rows sent to the database per JDBC batch by {@link #rebuild(Object)}.
+     */
+    @Setter
+    private int batchSize = 1000;
+
+    public NestedSetValidator(AbstractNodeRepository<T, ?> repository) {
+        this.repository = repository;
+    }
+
+    public List<Violation> validate() {
+        return validate(null);
+    }
+
+    /**
+     * Checks that every node has a lft and a rgt, lft < rgt, lies completely inside its parent, has a depth one below its parent
+     * and, unless disabled, that the boundaries are numbered 1, 2, 3... without gaps. An empty list means the tree
+     * is consistent.
+     */
+    public List<Violation> validate(Object scope) {
+        requireScope(scope);
+        List<Violation> violations = new ArrayList<>();
+        Deque<NodeComponent> open = new ArrayDeque<>();
+        int last = 0;
+        Integer previousLeft = null;
+        try (Stream<T> rows = repository.streamAll(scope)) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext() && violations.size() < maxViolations) {
+                T node = iterator.next();
+                if (node.getLft() == null || node.getRgt() == null) {
+                    violations.add(new Violation(node, "lft or rgt is missing"));
+                    continue;
+                }
+                while (!open.isEmpty() && open.peek().getRgt() < node.getLft()) {
+                    last = close(open.pop(), last, violations);
+                }
+                if (node.getLft() >= node.getRgt()) {
+                    violations.add(new Violation(node, "lft is not below rgt"));
+                    continue;
+                }
+                if (node.getLft().equals(previousLeft)) {
+                    violations.add(new Violation(node, "lft is used twice"));
+                    continue;
+                }
+                previousLeft = node.getLft();
+                if (contiguous && node.getLft() != last + 1) {
+                    violations.add(new Violation(node, "lft follows " + last));
+                }
+                last = node.getLft();
+                if (!open.isEmpty() && open.peek().getRgt() < node.getRgt()) {
+                    violations.add(new Violation(node, "overlaps its parent " + open.peek().getId()));
+                }
+                if (node.getDepth() == null || node.getDepth() != open.size()) {
+                    violations.add(new Violation(node, "depth should be " + open.size()));
+                }
+                open.push(node);
+            }
+        }
+        while (!open.isEmpty() && violations.size() < maxViolations) {
+            last = close(open.pop(), last, violations);
+        }
+        return violations;
+    }
+
+    private int close(NodeComponent node, int last, List<Violation> violations) {
+        if (contiguous && node.getRgt() != last + 1) {
+            violations.add(new Violation(node, "rgt follows " + last));
+        }
+        return Math.max(last, node.getRgt());
+    }
+
+    public int rebuild() {
+        return rebuild(null);
+    }
+
+    /**
+     * Renumbers the tree densely from 1, keeping the current lft order as the pre-order. A node belongs to the
+     * nearest node before it whose rgt is not below its lft; a node reaching past its parent is cut back to end
+     * with it. A node without a rgt is taken for a leaf, and nodes without a lft are appended after the tree as
+     * roots. Only changed rows are written, with batched JDBC updates that bypass the persistence context,
+     * which is flushed before and cleared afterwards. Returns the number of rows written.
+     * <p>
+     * The new boundaries are assigned as nodes close, so they are collected in primitive arrays, about 20 bytes
+     * per changed row, and written once the read is finished.
+     */
+    public int rebuild(Object scope) {
+        requireScope(scope);
+        EntityManager entityManager = repository.getEntityManager();
+        entityManager.flush();
+
+        Renumbering renumbering = new Renumbering();
+        Deque<OpenNode> open = new ArrayDeque<>();
+        List<Long> unnumbered = new ArrayList<>();
+        int counter = 1;
+        try (Stream<T> rows = repository.streamAll(scope)) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                T node = iterator.next();
+                if (node.getLft() == null) {
+                    unnumbered.add(node.getId());
+                    continue;
+                }
+                while (!open.isEmpty() && open.peek().end < node.getLft()) {
+                    renumbering.add(open.pop(), counter++);
+                }
+                int end = node.getRgt() == null ? node.getLft() : Math.max(node.getLft(), node.getRgt());
+                if (!open.isEmpty()) {
+                    end = Math.min(end, open.peek().end);
+                }
+                open.push(new OpenNode(node.getId(), node.getLft(), node.getRgt(), node.getDepth(), counter++, open.size(), end));
+            }
+        }
+        while (!open.isEmpty()) {
+            renumbering.add(open.pop(), counter++);
+        }
+        for (Long id : unnumbered) {
+            int left = counter++;
+            renumbering.add(new OpenNode(id, null, null, null, left, 0, left), counter++);
+        }
+
+        renumbering.write(entityManager);
+        entityManager.clear();
+        return renumbering.size;
+    }
+
+    private void requireScope(Object scope) {
+        if (scope == null && repository.getConfigs().getScopeFieldName() != null) {
+            throw new RuntimeException("Scope is required for a scoped table");
+        }
+    }
+
+    public record Violation(Long id, Integer lft, Integer rgt, String problem) {
+        Violation(NodeComponent node, String problem) {
+            this(node.getId(), node.getLft(), node.getRgt(), problem);
+        }
+    }
+
+    private record OpenNode(Long id, Integer oldLeft, Integer oldRight, Integer oldDepth, int left, int depth, int end) {
+    }
+
+    /**
+     * The rows whose lft, rgt or depth change, in the order they were closed.
+     */
+    private class Renumbering {
+        private long[] ids = new long[1024];
+        private int[] lefts = new int[1024];
+        private int[] rights = new int[1024];
+        private int[] depths = new int[1024];
+        private int size;
+
+        void add(OpenNode node, int right) {
+            if (Objects.equals(node.oldLeft(), node.left()) && Objects.equals(node.oldRight(), right)
+                    && Objects.equals(node.oldDepth(), node.depth())) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lefts = Arrays.copyOf(lefts, size * 2);
+                rights = Arrays.copyOf(rights, size * 2);
+                depths = Arrays.copyOf(depths, size * 2);
+            }
+            ids[size] = node.id();
+            lefts[size] = node.left();
+            rights[size] = right;
+            depths[size] = node.depth();
+            size++;
+        }
+
+        void write(EntityManager entityManager) {
+            NodeField fields = repository.getConfigs();
+            String sql = "update " + repository.getTableName() + " set "
+                    + repository.getColumnName(fields.getLeftFieldName()) + " = ?, "
+                    + repository.getColumnName(fields.getRightFieldName()) + " = ?, "
+                    + repository.getColumnName(fields.getDepthFieldName()) + " = ? where "
+                    + repository.getColumnName(fields.getIdFieldName()) + " = ?";
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement update = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < size; i++) {
+                        update.setInt(1, lefts[i]);
+                        update.setInt(2, rights[i]);
+                        update.setInt(3, depths[i]);
+                        update.setLong(4, ids[i]);
+                        update.addBatch();
+                        if ((i + 1) % batchSize == 0) {
+                            update.executeBatch();
+                        }
+                    }
+                    update.executeBatch();
+                }
+            });
+        }
+    }
+}
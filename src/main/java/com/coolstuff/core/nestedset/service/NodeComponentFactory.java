@@ -1,8 +1,19 @@
 package com.coolstuff.core.nestedset.service;
 
 import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
 
 public interface NodeComponentFactory {
     NodeComponent createCompositeNodeComponent();
     NodeComponent createLeafNodeComponent();
+
+    default NodeComponent createNodeComponent(NodeView view) {
+        NodeComponent node = view.isLeaf() ? createLeafNodeComponent() : createCompositeNodeComponent();
+        node.setId(view.id());
+        node.setName(view.name());
+        node.setLft(view.lft());
+        node.setRgt(view.rgt());
+        node.setDepth(view.depth());
+        return node;
+    }
 }
@@ -0,0 +1,7 @@
+package com.coolstuff.core.nestedset.service;
+
+/**
+ * A new node to be appended as the last child of {@code parentId}.
+ */
+public record NodeInsert<T, ID>(T node, ID parentId) {
+}
@@ -0,0 +1,128 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of a whole table ordered by lft. Ranges are found with a binary search on lft and
+ * ancestors by following a precomputed parent index, so no query touches more than its own result.
+ */
+public class NodeSnapshot {
+    private final List<NodeComponent> nodes;
+    private final int[] lefts;
+    private final int[] parents;
+    private final Map<Long, Integer> positions;
+
+    private NodeSnapshot(List<NodeComponent> nodes) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.lefts = new int[nodes.size()];
+        this.parents = new int[nodes.size()];
+        this.positions = new HashMap<>(nodes.size() * 2);
+
+        Deque<Integer> open = new ArrayDeque<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeComponent node = nodes.get(i);
+            while (!open.isEmpty() && nodes.get(open.peek()).getRgt() < node.getLft()) {
+                open.pop();
+            }
+            lefts[i] = node.getLft();
+            parents[i] = open.isEmpty() ? -1 : open.peek();
+            positions.put(node.getId(), i);
+            open.push(i);
+        }
+    }
+
+    /**
+     * Copies {@code lftOrdered} into components created by {@code factory}, detaching the snapshot
+     * from the entities it was loaded from.
+     */
+    public static NodeSnapshot of(List<? extends NodeComponent> lftOrdered, NodeComponentFactory factory) {
+        return ofViews(lftOrdered.stream().map(NodeView::of).toList(), factory);
+    }
+
+    public static NodeSnapshot ofViews(List<NodeView> lftOrdered, NodeComponentFactory factory) {
+        List<NodeComponent> copies = new ArrayList<>(lftOrdered.size());
+        for (NodeView view : lftOrdered) {
+            copies.add(factory.createNodeComponent(view));
+        }
+        return new NodeSnapshot(copies);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public boolean contains(Object id) {
+        return positions.containsKey(id);
+    }
+
+    public List<NodeComponent> getAll() {
+        return nodes;
+    }
+
+    /**
+     * Returns the node and all of its descendants in lft order, or an empty list for an unknown id.
+     */
+    public List<NodeComponent> getSubtree(Object id) {
+        Integer position = positions.get(id);
+        if (position == null) {
+            return List.of();
+        }
+        return nodes.subList(position, endOf(position));
+    }
+
+    /**
+     * Returns the node followed by its descendants down to {@code maxDepth} levels below it.
+     */
+    public List<NodeComponent> getDescendants(Object id, int maxDepth) {
+        Integer position = positions.get(id);
+        if (position == null) {
+            return List.of();
+        }
+        int end = endOf(position);
+        int limit = nodes.get(position).getDepth() + maxDepth;
+        List<NodeComponent> descendants = new ArrayList<>();
+        for (int i = position; i < end; ) {
+            NodeComponent node = nodes.get(i);
+            descendants.add(node);
+            // the next position is the first child, so a node at the limit is left by jumping past its subtree
+            boolean leaf = node.getRgt() == node.getLft() + 1;
+            i = leaf || node.getDepth() < limit ? i + 1 : endOf(i);
+        }
+        return Collections.unmodifiableList(descendants);
+    }
+
+    /**
+     * Returns the path from the root down to the node, the node included.
+     */
+    public List<NodeComponent> getPath(Object id) {
+        Integer position = positions.get(id);
+        if (position == null) {
+            return List.of();
+        }
+        List<NodeComponent> path = new ArrayList<>();
+        for (int i = position; i != -1; i = parents[i]) {
+            path.add(nodes.get(i));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public List<NodeComponent> getLeaves(Object id) {
+        return getSubtree(id).stream().filter(node -> node.getRgt() == node.getLft() + 1).toList();
+    }
+
+    private int endOf(int position) {
+        int end = Arrays.binarySearch(lefts, position + 1, lefts.length, nodes.get(position).getRgt());
+        return end < 0 ? -end - 1 : end;
+    }
+}
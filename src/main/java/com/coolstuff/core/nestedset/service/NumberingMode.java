@@ -0,0 +1,11 @@
+package com.coolstuff.core.nestedset.service;
+
+/**
+ * DENSE keeps lft/rgt consecutive, so every insert shifts the right side of the tree.
+ * SPARSE leaves gaps between siblings and inside parents, and only shifts or rebalances when a gap runs out.
+ * Leaves stay at rgt = lft + 1 in both modes.
+ */
+public enum NumberingMode {
+    DENSE,
+    SPARSE
+}
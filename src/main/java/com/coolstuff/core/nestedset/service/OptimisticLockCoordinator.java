@@ -0,0 +1,41 @@
+package com.coolstuff.core.nestedset.service;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Reads the version of the tree when a mutation starts and increments it right before the commit. When another
+ * writer committed in between, the transaction is rolled back with an {@link OptimisticLockingFailureException}
+ * and has to be repeated, for example with {@link MutationRetry}.
+ */
+public class OptimisticLockCoordinator extends AbstractLockTableCoordinator {
+
+    public OptimisticLockCoordinator(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this(entityManager, transactionManager, "nested_set_lock");
+    }
+
+    public OptimisticLockCoordinator(EntityManager entityManager, PlatformTransactionManager transactionManager, String table) {
+        super(entityManager, transactionManager, table);
+    }
+
+    @Override
+    protected void lockRow(String treeKey, Runnable release) {
+        Long version = selectVersion(treeKey, false);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (incrementVersion(treeKey, version) == 0) {
+                    throw new OptimisticLockingFailureException("Tree " + treeKey + " was changed by another transaction");
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                release.run();
+            }
+        });
+    }
+}
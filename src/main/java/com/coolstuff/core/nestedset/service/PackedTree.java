@@ -0,0 +1,191 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Read-only tree kept in parallel primitive arrays indexed by lft order. All names share one char buffer
+ * and nodes are addressed by their index, so lookups do not allocate. A node costs 44 bytes across the
+ * arrays plus its name, against well over 150 bytes for a {@link NodeComponent} tree.
+ */
+public class PackedTree implements TreeSnapshot {
+    private static final int ROOT = -1;
+
+    private final int size;
+    private final long[] ids;
+    private final int[] lefts;
+    private final int[] rights;
+    private final int[] depths;
+    private final int[] parents;
+    private final int[] nameStarts;
+    private final int[] nameLengths;
+    private final char[] names;
+    private final long[] sortedIds;
+    private final int[] sortedIdIndexes;
+
+    private PackedTree(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.lefts = Arrays.copyOf(builder.lefts, size);
+        this.rights = Arrays.copyOf(builder.rights, size);
+        this.depths = Arrays.copyOf(builder.depths, size);
+        this.parents = Arrays.copyOf(builder.parents, size);
+        this.nameStarts = Arrays.copyOf(builder.nameStarts, size);
+        this.nameLengths = Arrays.copyOf(builder.nameLengths, size);
+        this.names = Arrays.copyOf(builder.names, builder.nameLength);
+
+        // ids are usually not in lft order, a sorted copy with the matching indexes replaces a boxed map
+        this.sortedIdIndexes = orderById(ids);
+        this.sortedIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = ids[sortedIdIndexes[i]];
+        }
+    }
+
+    /**
+     * Packs nodes arriving in lft order, for example from {@code NodeRepository#streamAll()}.
+     */
+    public static PackedTree from(Stream<? extends NodeComponent> lftOrdered) {
+        Builder builder = new Builder();
+        Iterator<? extends NodeComponent> nodes = lftOrdered.iterator();
+        while (nodes.hasNext()) {
+            builder.add(nodes.next());
+        }
+        return new PackedTree(builder);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int indexOf(long id) {
+        int position = Arrays.binarySearch(sortedIds, id);
+        return position < 0 ? -1 : sortedIdIndexes[position];
+    }
+
+    @Override
+    public int indexOfLeft(int left) {
+        int position = Arrays.binarySearch(lefts, left);
+        return position < 0 ? -1 : position;
+    }
+
+    @Override
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public int getLft(int index) {
+        return lefts[index];
+    }
+
+    @Override
+    public int getRgt(int index) {
+        return rights[index];
+    }
+
+    @Override
+    public int getDepth(int index) {
+        return depths[index];
+    }
+
+    @Override
+    public String getName(int index) {
+        return nameLengths[index] < 0 ? null : new String(names, nameStarts[index], nameLengths[index]);
+    }
+
+    @Override
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    @Override
+    public int getSubtreeEnd(int index) {
+        int end = Arrays.binarySearch(lefts, index + 1, size, rights[index]);
+        return end < 0 ? -end - 1 : end;
+    }
+
+    /**
+     * Returns the positions of {@code ids} ordered by id, so an id can be found with a binary search.
+     */
+    static int[] orderById(long[] ids) {
+        // ids are unique, so each one finds its own slot in a sorted copy and no boxed index array is needed
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int[] positions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            positions[Arrays.binarySearch(sorted, ids[i])] = i;
+        }
+        return positions;
+    }
+
+    private static class Builder {
+        private int size;
+        private long[] ids = new long[1024];
+        private int[] lefts = new int[1024];
+        private int[] rights = new int[1024];
+        private int[] depths = new int[1024];
+        private int[] parents = new int[1024];
+        private int[] nameStarts = new int[1024];
+        private int[] nameLengths = new int[1024];
+        private char[] names = new char[16 * 1024];
+        private int nameLength;
+        private int[] open = new int[64];
+        private int openSize;
+
+        void add(NodeComponent node) {
+            if (size == ids.length) {
+                grow();
+            }
+            if (size > 0 && node.getLft() <= lefts[size - 1]) {
+                throw new RuntimeException("Nodes are not ordered by lft at " + node.getName());
+            }
+            while (openSize > 0 && rights[open[openSize - 1]] < node.getLft()) {
+                openSize--;
+            }
+            ids[size] = node.getId();
+            lefts[size] = node.getLft();
+            rights[size] = node.getRgt();
+            depths[size] = node.getDepth();
+            parents[size] = openSize == 0 ? ROOT : open[openSize - 1];
+            addName(node.getName());
+
+            if (openSize == open.length) {
+                open = Arrays.copyOf(open, openSize * 2);
+            }
+            open[openSize++] = size;
+            size++;
+        }
+
+        private void addName(String name) {
+            if (name == null) {
+                nameStarts[size] = nameLength;
+                nameLengths[size] = -1;
+                return;
+            }
+            if (nameLength + name.length() > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, nameLength + name.length()));
+            }
+            name.getChars(0, name.length(), names, nameLength);
+            nameStarts[size] = nameLength;
+            nameLengths[size] = name.length();
+            nameLength += name.length();
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            nameStarts = Arrays.copyOf(nameStarts, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+        }
+    }
+}
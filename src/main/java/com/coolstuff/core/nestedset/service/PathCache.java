@@ -0,0 +1,60 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeView;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches root-to-node paths by node id for breadcrumb style lookups. Paths are held as {@link NodeView} records,
+ * so no managed entity is shared between sessions. When full, the least recently read path is evicted.
+ */
+public class PathCache<ID> {
+    private final Map<ID, List<NodeView>> paths;
+    private final AtomicLong generation = new AtomicLong();
+
+    public PathCache() {
+        this(10_000);
+    }
+
+    public PathCache(int maxEntries) {
+        this.paths = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ID, List<NodeView>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public List<NodeView> get(ID id, Function<ID, List<NodeView>> loader) {
+        List<NodeView> path = paths.get(id);
+        if (path != null) {
+            return path;
+        }
+
+        long loadedAt = generation.get();
+        path = List.copyOf(loader.apply(id));
+        if (path.isEmpty()) {
+            return path;
+        }
+        paths.put(id, path);
+        // a mutation that happened while loading may have been missed by the query, so drop what was just added
+        if (generation.get() != loadedAt) {
+            paths.remove(id, path);
+        }
+        return path;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        paths.clear();
+    }
+
+    public int size() {
+        return paths.size();
+    }
+}
@@ -1,18 +1,41 @@
 package com.coolstuff.core.nestedset.service;
 
 import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 public interface PersistenceNodeService<T extends NodeComponent,ID> {
     T createNode(T entity);
 
     T createNode(T entity, ID parentId);
 
+    List<T> createNodes(List<NodeInsert<T, ID>> inserts);
+
+    List<T> createSubtree(ID parentId, List<T> nodesInPreOrder);
+
+    List<T> importTree(NodeComponent root, Function<NodeComponent, T> toEntity);
+
     Optional<T> readNode(ID id);
 
+    List<T> findPath(ID id);
+
+    List<NodeView> findPathViews(ID id);
+
     T updateNode(ID id, T entity);
 
     void deleteNode(ID id);
 
+    T moveNode(ID id, ID newParentId, MovePosition position);
+
+    T moveBefore(ID id, ID siblingId);
+
+    T moveAfter(ID id, ID siblingId);
+
+    void rebalance(ID subtreeId);
+
+    int rebuild(NestedSetValidator<T> validator, Object scope);
+
 }
@@ -0,0 +1,32 @@
+package com.coolstuff.core.nestedset.service;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Locks the row of the tree with {@code SELECT ... FOR UPDATE}. Writers of every process wait for each other
+ * and the database releases the lock on commit or rollback.
+ */
+public class PessimisticLockCoordinator extends AbstractLockTableCoordinator {
+
+    public PessimisticLockCoordinator(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this(entityManager, transactionManager, "nested_set_lock");
+    }
+
+    public PessimisticLockCoordinator(EntityManager entityManager, PlatformTransactionManager transactionManager, String table) {
+        super(entityManager, transactionManager, table);
+    }
+
+    @Override
+    protected void lockRow(String treeKey, Runnable release) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release.run();
+            }
+        });
+        selectVersion(treeKey, true);
+    }
+}
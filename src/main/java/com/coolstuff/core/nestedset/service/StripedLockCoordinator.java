@@ -0,0 +1,56 @@
+package com.coolstuff.core.nestedset.service;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates the writers of a single JVM with a fixed set of locks chosen by the hash of the tree key. The lock
+ * is released once the transaction completes, so it only protects trees that no other process writes to.
+ */
+public class StripedLockCoordinator implements MutationCoordinator {
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    public StripedLockCoordinator() {
+        this(64, 30_000);
+    }
+
+    public StripedLockCoordinator(int stripes, long timeoutMillis) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void lock(String treeKey) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new RuntimeException("Tree mutations must run inside a transaction");
+        }
+        ReentrantLock stripe = stripes[Math.floorMod(treeKey.hashCode(), stripes.length)];
+        if (TransactionSynchronizationManager.hasResource(stripe)) {
+            return;
+        }
+        try {
+            if (!stripe.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new CannotAcquireLockException("Timed out waiting for tree " + treeKey);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for tree " + treeKey, e);
+        }
+        TransactionSynchronizationManager.bindResource(stripe, treeKey);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(stripe);
+                stripe.unlock();
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * The {@code nestedset.tree.build} timer and {@code nestedset.tree.build.nodes} summary of one {@link TreeBuilder},
+ * registered once and tagged with the builder name.
+ */
+class TreeBuildMetrics {
+    private final Timer builds;
+    private final DistributionSummary nodes;
+
+    TreeBuildMetrics(MeterRegistry meterRegistry, String builder) {
+        builds = Timer.builder("nestedset.tree.build")
+                .tag("builder", builder)
+                .register(meterRegistry);
+        nodes = DistributionSummary.builder("nestedset.tree.build.nodes")
+                .tag("builder", builder)
+                .register(meterRegistry);
+    }
+
+    Optional<NodeComponent> record(List<NodeComponent> nodeList, Supplier<Optional<NodeComponent>> build) {
+        Optional<NodeComponent> tree = builds.record(build);
+        nodes.record(nodeList == null ? 0 : nodeList.size());
+        return tree;
+    }
+}
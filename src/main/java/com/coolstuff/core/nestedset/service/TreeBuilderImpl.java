@@ -1,6 +1,8 @@
 package com.coolstuff.core.nestedset.service;
 
 import com.coolstuff.core.nestedset.model.NodeComponent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
 
 import java.util.ArrayList;
@@ -11,30 +13,41 @@ import java.util.Optional;
 public class TreeBuilderImpl implements TreeBuilder {
     private final NodeComponentFactory nodeComponentFactory;
 
+    private TreeBuildMetrics metrics = new TreeBuildMetrics(Metrics.globalRegistry, "recursive");
+
+    /**
+     * Receives the {@code nestedset.tree.build} timer and the {@code nestedset.tree.build.nodes} summary.
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        metrics = new TreeBuildMetrics(meterRegistry, "recursive");
+    }
+
     public Optional<NodeComponent> buildTree(List<NodeComponent> nodeList) {
-        if (nodeList == null || nodeList.isEmpty()) {
-            return Optional.empty();
-        }
+        return metrics.record(nodeList, () -> {
+            if (nodeList == null || nodeList.isEmpty()) {
+                return Optional.empty();
+            }
 
-        NodeComponent root = nodeList.getFirst();
-        NodeComponent node;
-        if (root.getRgt() == root.getLft() + 1) {
-            node = nodeComponentFactory.createLeafNodeComponent();
-            node.setId(root.getId());
-            node.setName(root.getName());
-            node.setLft(root.getLft());
-            node.setRgt(root.getRgt());
-            node.setDepth(root.getDepth());
-            return Optional.of(node);
-        } else {
-            node = nodeComponentFactory.createCompositeNodeComponent();
-            node.setId(root.getId());
-            node.setName(root.getName());
-            node.setLft(root.getLft());
-            node.setRgt(root.getRgt());
-            node.setDepth(root.getDepth());
-            return Optional.of(buildTreeRecursive(node, nodeList,0));
-        }
+            NodeComponent root = nodeList.getFirst();
+            NodeComponent node;
+            if (root.getRgt() == root.getLft() + 1) {
+                node = nodeComponentFactory.createLeafNodeComponent();
+                node.setId(root.getId());
+                node.setName(root.getName());
+                node.setLft(root.getLft());
+                node.setRgt(root.getRgt());
+                node.setDepth(root.getDepth());
+                return Optional.of(node);
+            } else {
+                node = nodeComponentFactory.createCompositeNodeComponent();
+                node.setId(root.getId());
+                node.setName(root.getName());
+                node.setLft(root.getLft());
+                node.setRgt(root.getRgt());
+                node.setDepth(root.getDepth());
+                return Optional.of(buildTreeRecursive(node, nodeList,0));
+            }
+        });
     }
 
     private NodeComponent buildTreeRecursive(NodeComponent parent, List<NodeComponent> nodeList, int index) {
@@ -74,13 +87,18 @@ public class TreeBuilderImpl implements TreeBuilder {
             return leafNodes;
         }
 
+        collectLeaves(node, leafNodes);
+        return leafNodes;
+    }
+
+    private void collectLeaves(NodeComponent node, List<NodeComponent> leafNodes) {
         if (node.getRgt() == node.getLft()+1) {
             leafNodes.add(node);
         } else {
+            // one shared list, so a leaf is not copied again on every level above it
             for (NodeComponent child : node.getChildren()) {
-                leafNodes.addAll(getLeafList(child));
+                collectLeaves(child, leafNodes);
             }
         }
-        return leafNodes;
     }
 }
@@ -0,0 +1,182 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.BoundariesShifted;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.NodeUpdated;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.NodesInserted;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.SubtreeDeleted;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.SubtreeMoved;
+import com.coolstuff.core.nestedset.service.TreeChangeEvent.TreeInvalidated;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A lft ordered copy of one tree kept up to date from {@link TreeChanges} instead of being read again. An event
+ * only touches the nodes whose boundaries it changes: the range is found by a binary search on lft and its
+ * enclosing nodes by descending from the roots, skipping every subtree that ends before the range.
+ * <p>
+ * After a {@link TreeInvalidated} the copy is stale and has to be replaced with {@link #reload(List)}. Events of
+ * other scopes are ignored. The applier is not thread safe.
+ */
+public class TreeChangeApplier {
+    private final Object scope;
+    private final NodeComponentFactory factory;
+    private final List<NodeComponent> nodes = new ArrayList<>();
+    private boolean stale;
+
+    public TreeChangeApplier(Object scope, List<NodeView> lftOrdered, NodeComponentFactory factory) {
+        this.scope = scope;
+        this.factory = factory;
+        reload(lftOrdered);
+    }
+
+    public void reload(List<NodeView> lftOrdered) {
+        nodes.clear();
+        lftOrdered.forEach(view -> nodes.add(factory.createNodeComponent(view)));
+        stale = false;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * The current nodes in lft order. The list is a live view and must not be modified.
+     */
+    public List<NodeComponent> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public NodeSnapshot toSnapshot() {
+        return NodeSnapshot.of(nodes, factory);
+    }
+
+    public void apply(TreeChanges changes) {
+        for (TreeChangeEvent event : changes.events()) {
+            if (!stale && Objects.equals(event.scope(), scope)) {
+                apply(event);
+            }
+        }
+    }
+
+    private void apply(TreeChangeEvent event) {
+        switch (event) {
+            case NodesInserted inserted -> insert(inserted.nodes());
+            case BoundariesShifted shifted -> shift(shifted.from(), shifted.delta());
+            case SubtreeDeleted deleted -> nodes.subList(indexOf(deleted.left()), indexOf(deleted.right() + 1)).clear();
+            case SubtreeMoved moved -> move(moved);
+            case NodeUpdated updated -> {
+                int index = indexOf(updated.node().lft());
+                if (index < nodes.size() && Objects.equals(nodes.get(index).getId(), updated.node().id())) {
+                    nodes.get(index).setName(updated.node().name());
+                }
+            }
+            case TreeInvalidated invalidated -> stale = true;
+        }
+    }
+
+    /**
+     * Inserts runs of nodes that belong to the same position at once.
+     */
+    private void insert(List<NodeView> views) {
+        int start = 0;
+        while (start < views.size()) {
+            int index = indexOf(views.get(start).lft());
+            int end = start + 1;
+            while (end < views.size() && (index == nodes.size() || views.get(end).lft() < nodes.get(index).getLft())) {
+                end++;
+            }
+            nodes.addAll(index, views.subList(start, end).stream().map(factory::createNodeComponent).toList());
+            start = end;
+        }
+    }
+
+    private void shift(int from, int delta) {
+        int first = indexOf(from);
+        for (NodeComponent enclosing : enclosing(first, from)) {
+            enclosing.setRgt(enclosing.getRgt() + delta);
+        }
+        for (int i = first; i < nodes.size(); i++) {
+            NodeComponent node = nodes.get(i);
+            node.setLft(node.getLft() + delta);
+            node.setRgt(node.getRgt() + delta);
+        }
+    }
+
+    /**
+     * Applies the rotation of {@code moveSubtree}: the subtree and the nodes between it and the target swap places.
+     */
+    private void move(SubtreeMoved moved) {
+        int width = moved.right() - moved.left() + 1;
+        boolean forward = moved.target() > moved.right();
+        int subtreeOffset = forward ? moved.target() - moved.right() - 1 : moved.target() - moved.left();
+        int othersOffset = forward ? -width : width;
+        int low = Math.min(moved.left(), moved.target());
+        int high = Math.max(moved.right(), moved.target() - 1);
+
+        int first = indexOf(low);
+        int last = indexOf(high + 1);
+        for (NodeComponent enclosing : enclosing(first, low)) {
+            if (enclosing.getRgt() <= high) {
+                enclosing.setRgt(enclosing.getRgt() + othersOffset);
+            }
+        }
+        int subtreeSize = 0;
+        for (NodeComponent node : nodes.subList(first, last)) {
+            if (node.getLft() >= moved.left() && node.getLft() <= moved.right()) {
+                node.setDepth(node.getDepth() + moved.depthDelta());
+                node.setLft(node.getLft() + subtreeOffset);
+                node.setRgt(node.getRgt() + subtreeOffset);
+                subtreeSize++;
+            } else {
+                node.setLft(node.getLft() + othersOffset);
+                if (node.getRgt() <= high) {
+                    node.setRgt(node.getRgt() + othersOffset);
+                }
+            }
+        }
+        // the range starts with the subtree when it moves forward and ends with it otherwise
+        Collections.rotate(nodes.subList(first, last), forward ? -subtreeSize : subtreeSize);
+    }
+
+    /**
+     * The nodes before {@code index} that still contain the boundary {@code value}.
+     */
+    private List<NodeComponent> enclosing(int index, int value) {
+        List<NodeComponent> enclosing = new ArrayList<>();
+        int i = 0;
+        while (i < index) {
+            NodeComponent node = nodes.get(i);
+            if (node.getRgt() >= value) {
+                enclosing.add(node);
+                i++;
+            } else {
+                i = indexOf(node.getRgt() + 1, i + 1, index);
+            }
+        }
+        return enclosing;
+    }
+
+    private int indexOf(int lft) {
+        return indexOf(lft, 0, nodes.size());
+    }
+
+    /**
+     * The first index within [low, high) whose lft is at least {@code lft}.
+     */
+    private int indexOf(int lft, int low, int high) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (nodes.get(mid).getLft() < lft) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
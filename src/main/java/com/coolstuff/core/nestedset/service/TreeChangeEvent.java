@@ -0,0 +1,54 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeView;
+
+import java.util.List;
+
+/**
+ * One structural change of a tree, described by the boundaries it touched. Applying the events of a
+ * {@link TreeChanges} batch in order to a copy of the tree gives the committed tree, see {@link TreeChangeApplier}.
+ */
+public sealed interface TreeChangeEvent {
+    /**
+     * The tree scope of the change, null for an unscoped table.
+     */
+    Object scope();
+
+    /**
+     * New nodes with their final boundaries, in lft order. Any gap they fill was opened by a preceding event.
+     */
+    record NodesInserted(Object scope, List<NodeView> nodes) implements TreeChangeEvent {
+    }
+
+    /**
+     * Every lft and rgt at or above {@code from} moved by {@code delta}.
+     */
+    record BoundariesShifted(Object scope, int from, int delta) implements TreeChangeEvent {
+    }
+
+    /**
+     * The nodes within [left, right] were removed. The gap is closed by a following {@link BoundariesShifted}.
+     */
+    record SubtreeDeleted(Object scope, int left, int right) implements TreeChangeEvent {
+    }
+
+    /**
+     * The subtree [left, right] was moved in front of the boundary {@code target}, with the nodes in between moving
+     * the other way to make room, and its depths changed by {@code depthDelta}.
+     */
+    record SubtreeMoved(Object scope, int left, int right, int target, int depthDelta) implements TreeChangeEvent {
+    }
+
+    /**
+     * A node changed without moving.
+     */
+    record NodeUpdated(Object scope, NodeView node) implements TreeChangeEvent {
+    }
+
+    /**
+     * A change that is not described by boundaries, such as a rebalance or a sparse numbered insert. The tree has
+     * to be read again.
+     */
+    record TreeInvalidated(Object scope) implements TreeChangeEvent {
+    }
+}
@@ -0,0 +1,10 @@
+package com.coolstuff.core.nestedset.service;
+
+/**
+ * Notified by {@link AbstractPersistenceNodeService} once the transaction that changed a tree has completed,
+ * or right away when the change ran without a transaction.
+ */
+@FunctionalInterface
+public interface TreeChangeListener {
+    void onTreeChange();
+}
@@ -0,0 +1,10 @@
+package com.coolstuff.core.nestedset.service;
+
+/**
+ * Receives the {@link TreeChanges} of every committed transaction. {@code applicationEventPublisher::publishEvent}
+ * hands them to Spring listeners.
+ */
+@FunctionalInterface
+public interface TreeChangeSink {
+    void publish(TreeChanges changes);
+}
@@ -0,0 +1,9 @@
+package com.coolstuff.core.nestedset.service;
+
+import java.util.List;
+
+/**
+ * The changes one transaction made to the trees of a service, in the order they were made.
+ */
+public record TreeChanges(String treeKey, List<TreeChangeEvent> events) {
+}
@@ -0,0 +1,48 @@
+package com.coolstuff.core.nestedset.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Holds the highest rgt of one entity type in memory so new roots can be appended without querying max(rgt).
+ */
+public class TreeExtentCounter {
+    private static final int UNSEEDED = -1;
+
+    private final AtomicInteger extent = new AtomicInteger(UNSEEDED);
+
+    public boolean isSeeded() {
+        return extent.get() != UNSEEDED;
+    }
+
+    public int get() {
+        return extent.get();
+    }
+
+    public void reseed(int maxRight) {
+        extent.set(maxRight);
+    }
+
+    /**
+     * Claims {@code width} values behind the current extent and returns the extent before the claim.
+     * An unseeded counter is seeded from {@code maxRight} first.
+     */
+    public int reserve(int width, IntSupplier maxRight) {
+        while (true) {
+            int current = extent.get();
+            if (current == UNSEEDED) {
+                extent.compareAndSet(UNSEEDED, maxRight.getAsInt());
+            } else if (extent.compareAndSet(current, current + width)) {
+                return current;
+            }
+        }
+    }
+
+    public void adjust(int delta) {
+        extent.updateAndGet(current -> current == UNSEEDED ? current : current + delta);
+    }
+
+    public void reset() {
+        extent.set(UNSEEDED);
+    }
+}
@@ -0,0 +1,105 @@
+package com.coolstuff.core.nestedset.service;
+
+/**
+ * Read-only view of a tree whose nodes are addressed by their position in lft order. Derived lookups are
+ * implemented on top of the columns, so an implementation only has to expose them.
+ */
+public interface TreeSnapshot {
+    int size();
+
+    /**
+     * Returns the index of the node with {@code id}, or -1 when it is not part of the tree.
+     */
+    int indexOf(long id);
+
+    long getId(int index);
+
+    int getLft(int index);
+
+    int getRgt(int index);
+
+    int getDepth(int index);
+
+    String getName(int index);
+
+    /**
+     * Returns the index of the parent, or -1 for a root.
+     */
+    int getParent(int index);
+
+    /**
+     * Returns the index of the node whose lft is {@code left}, or -1 when no node starts there.
+     */
+    default int indexOfLeft(int left) {
+        int position = searchLeft(0, size(), left);
+        return position < 0 ? -1 : position;
+    }
+
+    default boolean isLeaf(int index) {
+        return getRgt(index) == getLft(index) + 1;
+    }
+
+    default boolean isAncestorOf(int ancestor, int index) {
+        return getLft(ancestor) < getLft(index) && getRgt(index) < getRgt(ancestor);
+    }
+
+    /**
+     * Returns the index behind the last descendant, so the subtree of {@code index} spans
+     * {@code [index, getSubtreeEnd(index))}.
+     */
+    default int getSubtreeEnd(int index) {
+        int end = searchLeft(index + 1, size(), getRgt(index));
+        return end < 0 ? -end - 1 : end;
+    }
+
+    default int countDescendants(int index) {
+        return getSubtreeEnd(index) - index - 1;
+    }
+
+    /**
+     * Returns the first child, or -1 for a leaf. The remaining children follow through {@link #getNextSibling(int)}.
+     */
+    default int getFirstChild(int index) {
+        return index + 1 < size() && getParent(index + 1) == index ? index + 1 : -1;
+    }
+
+    default int getNextSibling(int index) {
+        int next = getSubtreeEnd(index);
+        return next < size() && getParent(next) == getParent(index) ? next : -1;
+    }
+
+    /**
+     * Returns the indexes from the root down to {@code index}, both included.
+     */
+    default int[] getPath(int index) {
+        int length = 0;
+        for (int i = index; i != -1; i = getParent(i)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int i = index; i != -1; i = getParent(i)) {
+            path[--length] = i;
+        }
+        return path;
+    }
+
+    /**
+     * Binary search over lft in {@code [from, to)} with the contract of {@link java.util.Arrays#binarySearch(int[], int)}.
+     */
+    private int searchLeft(int from, int to, int left) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = getLft(mid);
+            if (value < left) {
+                low = mid + 1;
+            } else if (value > left) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
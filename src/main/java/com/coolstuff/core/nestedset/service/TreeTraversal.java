@@ -0,0 +1,207 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.NodeComponent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel walks over a built tree or a lft ordered node list. A built tree is split by subtree: a task walks its
+ * subtree with an explicit stack and hands a large subtree to another task only when enough work is left for
+ * itself, so deep chains are walked in one task instead of one task per level. A list is split into index ranges.
+ * <p>
+ * Results are in lft order and gathered into one list sized once the walk is done. Reducers must be associative.
+ */
+public class TreeTraversal {
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public TreeTraversal() {
+        this(ForkJoinPool.commonPool(), 8192);
+    }
+
+    /**
+     * @param threshold number of nodes below which a subtree or range is not split any further
+     */
+    public TreeTraversal(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public List<NodeComponent> collectLeaves(NodeComponent subtree) {
+        List<List<NodeComponent>> chunks = walk(subtree, () -> new ArrayList<>(List.of(new ArrayList<>())),
+                (collected, node) -> {
+                    if (isLeaf(node)) {
+                        collected.getLast().add(node);
+                    }
+                },
+                (first, second) -> {
+                    first.addAll(second);
+                    return first;
+                });
+        List<NodeComponent> leaves = new ArrayList<>(chunks.stream().mapToInt(List::size).sum());
+        chunks.forEach(leaves::addAll);
+        return leaves;
+    }
+
+    /**
+     * Maps every node of the subtree, the subtree root included, and reduces the values.
+     */
+    public <R> R aggregate(NodeComponent subtree, Function<NodeComponent, R> mapper, BinaryOperator<R> reducer) {
+        return walk(subtree, Accumulation<R>::new,
+                (accumulation, node) -> accumulation.add(mapper.apply(node), reducer),
+                (first, second) -> first.add(second, reducer)).value;
+    }
+
+    public long countDescendants(NodeComponent subtree) {
+        return aggregate(subtree, node -> 1L, Long::sum) - 1;
+    }
+
+    /**
+     * Returns the leaves of a lft ordered list, for example the result of {@code streamAll()}. The list is
+     * split into ranges that are counted first, so every range writes its leaves straight to their final slot.
+     * The returned list has a fixed size.
+     */
+    public List<NodeComponent> collectLeaves(List<? extends NodeComponent> lftOrdered) {
+        int ranges = (lftOrdered.size() + threshold - 1) / threshold;
+        int[] offsets = new int[ranges + 1];
+        pool.submit(() -> IntStream.range(0, ranges).parallel().forEach(range -> {
+            int count = 0;
+            for (int i = range * threshold; i < Math.min(lftOrdered.size(), (range + 1) * threshold); i++) {
+                count += isLeaf(lftOrdered.get(i)) ? 1 : 0;
+            }
+            offsets[range + 1] = count;
+        })).join();
+        Arrays.parallelPrefix(offsets, Integer::sum);
+
+        NodeComponent[] leaves = new NodeComponent[offsets[ranges]];
+        pool.submit(() -> IntStream.range(0, ranges).parallel().forEach(range -> {
+            int next = offsets[range];
+            for (int i = range * threshold; i < Math.min(lftOrdered.size(), (range + 1) * threshold); i++) {
+                if (isLeaf(lftOrdered.get(i))) {
+                    leaves[next++] = lftOrdered.get(i);
+                }
+            }
+        })).join();
+        return Arrays.asList(leaves);
+    }
+
+    /**
+     * Maps and reduces the subtree starting at {@code index} of a lft ordered list. Empty only for an empty list.
+     */
+    public <R> Optional<R> aggregate(List<? extends NodeComponent> lftOrdered, int index,
+                                     Function<NodeComponent, R> mapper, BinaryOperator<R> reducer) {
+        if (lftOrdered.isEmpty()) {
+            return Optional.empty();
+        }
+        List<? extends NodeComponent> subtree = lftOrdered.subList(index, subtreeEnd(lftOrdered, index));
+        return pool.submit(() -> subtree.parallelStream().<R>map(mapper).reduce(reducer)).join();
+    }
+
+    public int countDescendants(List<? extends NodeComponent> lftOrdered, int index) {
+        return subtreeEnd(lftOrdered, index) - index - 1;
+    }
+
+    private int subtreeEnd(List<? extends NodeComponent> lftOrdered, int index) {
+        int right = lftOrdered.get(index).getRgt();
+        int low = index + 1;
+        int high = lftOrdered.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lftOrdered.get(mid).getLft() < right) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private <A> A walk(NodeComponent subtree, Supplier<A> create, BiConsumer<A, NodeComponent> accept, BinaryOperator<A> combine) {
+        return pool.invoke(new SubtreeTask<>(subtree, create, accept, combine));
+    }
+
+    private boolean isLeaf(NodeComponent node) {
+        return node.getRgt() == node.getLft() + 1;
+    }
+
+    private static long size(NodeComponent node) {
+        return (node.getRgt() - node.getLft() + 1) / 2;
+    }
+
+    private class SubtreeTask<A> extends RecursiveTask<A> {
+        private final NodeComponent root;
+        private final Supplier<A> create;
+        private final BiConsumer<A, NodeComponent> accept;
+        private final BinaryOperator<A> combine;
+
+        SubtreeTask(NodeComponent root, Supplier<A> create, BiConsumer<A, NodeComponent> accept, BinaryOperator<A> combine) {
+            this.root = root;
+            this.create = create;
+            this.accept = accept;
+            this.combine = combine;
+        }
+
+        @Override
+        protected A compute() {
+            // local results and forked subtrees in lft order
+            List<Supplier<A>> segments = new ArrayList<>();
+            A current = create.get();
+            Deque<NodeComponent> pending = new ArrayDeque<>();
+            pending.push(root);
+            long pendingSize = size(root);
+
+            while (!pending.isEmpty()) {
+                NodeComponent node = pending.pop();
+                pendingSize -= size(node);
+                if (node != root && size(node) >= threshold && pendingSize >= threshold) {
+                    A local = current;
+                    segments.add(() -> local);
+                    segments.add(new SubtreeTask<>(node, create, accept, combine).fork()::join);
+                    current = create.get();
+                    continue;
+                }
+                accept.accept(current, node);
+                if (!isLeaf(node)) {
+                    List<NodeComponent> children = new ArrayList<>(node.getChildren());
+                    for (int i = children.size() - 1; i >= 0; i--) {
+                        pending.push(children.get(i));
+                        pendingSize += size(children.get(i));
+                    }
+                }
+            }
+
+            A result = null;
+            for (Supplier<A> segment : segments) {
+                result = result == null ? segment.get() : combine.apply(result, segment.get());
+            }
+            return result == null ? current : combine.apply(result, current);
+        }
+    }
+
+    private static class Accumulation<R> {
+        private R value;
+        private boolean empty = true;
+
+        Accumulation<R> add(R next, BinaryOperator<R> reducer) {
+            value = empty ? next : reducer.apply(value, next);
+            empty = false;
+            return this;
+        }
+
+        Accumulation<R> add(Accumulation<R> other, BinaryOperator<R> reducer) {
+            return other.empty ? this : add(other.value, reducer);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.coolstuff.core.nestedset.export;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+class NestedSetJsonWriterTest {
+
+    @Test
+    void writeJson() throws IOException {
+        List<Category> tree = tree();
+        StringWriter out = new StringWriter();
+
+        long count = new NestedSetJsonWriter(out).writeJson(tree.stream());
+
+        Assertions.assertEquals(4, count);
+        Assertions.assertEquals("[{\"id\":1,\"name\":\"Node\",\"lft\":1,\"rgt\":6,\"depth\":0,\"children\":["
+                + "{\"id\":2,\"name\":\"Node.0\",\"lft\":2,\"rgt\":3,\"depth\":1,\"children\":[]},"
+                + "{\"id\":3,\"name\":\"Node.1\",\"lft\":4,\"rgt\":5,\"depth\":1,\"children\":[]}]},"
+                + "{\"id\":4,\"name\":\"Say \\\"hi\\\"\",\"lft\":7,\"rgt\":8,\"depth\":0,\"children\":[]}]", out.toString());
+    }
+
+    @Test
+    void writeNdjson() throws IOException {
+        StringWriter out = new StringWriter();
+
+        new NestedSetJsonWriter(out).writeNdjson(tree().stream());
+
+        String[] lines = out.toString().split("\n");
+        Assertions.assertEquals(4, lines.length);
+        Assertions.assertTrue(lines[0].endsWith("\"parentId\":null}"));
+        Assertions.assertTrue(lines[2].endsWith("\"parentId\":1}"));
+        Assertions.assertTrue(lines[3].endsWith("\"parentId\":null}"));
+    }
+
+    private List<Category> tree() {
+        List<Category> tree = CategoryTrees.generate(3, 2);
+        Category second = new Category(4L, "Say \"hi\"", 7, 8, 0);
+        for (int i = 0; i < tree.size(); i++) {
+            tree.get(i).setId(i + 1L);
+        }
+        return List.of(tree.get(0), tree.get(1), tree.get(2), second);
+    }
+}
@@ -0,0 +1,40 @@
+package com.coolstuff.core.nestedset.model;
+
+import com.coolstuff.core.nestedset.columns.DepthColumn;
+import com.coolstuff.core.nestedset.columns.LeftColumn;
+import com.coolstuff.core.nestedset.columns.NameColumn;
+import com.coolstuff.core.nestedset.columns.RightColumn;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "category")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Category extends NodeComponent {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @NameColumn
+    private String name;
+    @LeftColumn
+    private Integer lft;
+    @RightColumn
+    private Integer rgt;
+    @DepthColumn
+    private Integer depth;
+
+    public Category(String name) {
+        this.name = name;
+    }
+
+    public Category(Long id, String name, Integer lft, Integer rgt, Integer depth) {
+        super(id, name, lft, rgt, depth);
+    }
+}
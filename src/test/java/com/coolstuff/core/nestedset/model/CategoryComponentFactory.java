@@ -0,0 +1,14 @@
+package com.coolstuff.core.nestedset.model;
+
+import com.coolstuff.core.nestedset.service.NodeComponentFactory;
+
+public class CategoryComponentFactory implements NodeComponentFactory {
+
+    public NodeComponent createCompositeNodeComponent() {
+        return new CategoryComposite();
+    }
+
+    public NodeComponent createLeafNodeComponent() {
+        return new CategoryLeaf();
+    }
+}
@@ -0,0 +1,24 @@
+package com.coolstuff.core.nestedset.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@Getter
+@Setter
+public class CategoryComposite extends NodeComponent {
+    private Long id;
+    private String name;
+    private Integer lft;
+    private Integer rgt;
+    private Integer depth;
+    private Set<NodeComponent> children = new LinkedHashSet<>();
+    private NodeComponent parent;
+
+    @Override
+    public void addSubNode(NodeComponent child) {
+        children.add(child);
+    }
+}
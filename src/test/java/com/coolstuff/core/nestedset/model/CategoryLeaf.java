@@ -0,0 +1,15 @@
+package com.coolstuff.core.nestedset.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CategoryLeaf extends NodeComponent {
+    private Long id;
+    private String name;
+    private Integer lft;
+    private Integer rgt;
+    private Integer depth;
+    private NodeComponent parent;
+}
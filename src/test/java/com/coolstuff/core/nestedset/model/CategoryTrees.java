@@ -0,0 +1,86 @@
+package com.coolstuff.core.nestedset.model;
+
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+public final class CategoryTrees {
+    private CategoryTrees() {
+    }
+
+    /**
+     * Builds a dense nested set in lft order where every node has {@code fanout} children
+     * until {@code size} nodes have been generated.
+     */
+    public static List<Category> generate(int size, int fanout) {
+        List<Category> nodes = new ArrayList<>(size);
+        int[] counter = {1};
+        int[] remaining = {size};
+        build(nodes, 0, fanout, counter, remaining, "Node");
+        return nodes;
+    }
+
+    private static void build(List<Category> nodes, int depth, int fanout, int[] counter, int[] remaining, String name) {
+        Category node = new Category(name);
+        node.setLft(counter[0]++);
+        node.setDepth(depth);
+        nodes.add(node);
+        remaining[0]--;
+
+        // Breadth first sizing keeps the tree balanced instead of degenerating into a chain.
+        int children = Math.min(fanout, remaining[0]);
+        int[] budgets = new int[children];
+        for (int i = 0; i < remaining[0] && children > 0; i++) {
+            budgets[i % children]++;
+        }
+        int total = remaining[0];
+        for (int i = 0; i < children; i++) {
+            int[] budget = {budgets[i]};
+            build(nodes, depth + 1, fanout, counter, budget, name + "." + i);
+            total -= budgets[i];
+        }
+        remaining[0] = total;
+        node.setRgt(counter[0]++);
+    }
+
+    /**
+     * Checks that the lft ordered nodes form one dense nested set with consistent depths.
+     */
+    public static void assertDense(List<? extends NodeComponent> lftOrdered) {
+        assertNestedSet(lftOrdered);
+        boolean[] used = new boolean[lftOrdered.size() * 2 + 1];
+        for (NodeComponent node : lftOrdered) {
+            Assertions.assertTrue(node.getRgt() < used.length, () -> "rgt out of range for " + node.getName());
+            Assertions.assertFalse(used[node.getLft()] || used[node.getRgt()], () -> "duplicate boundary at " + node.getName());
+            used[node.getLft()] = true;
+            used[node.getRgt()] = true;
+        }
+    }
+
+    /**
+     * Checks nesting and depths without requiring consecutive numbering. Leaves must still be stored as rgt = lft + 1.
+     */
+    public static void assertNestedSet(List<? extends NodeComponent> lftOrdered) {
+        Deque<NodeComponent> ancestors = new ArrayDeque<>();
+        int previous = 0;
+        for (int i = 0; i < lftOrdered.size(); i++) {
+            NodeComponent node = lftOrdered.get(i);
+            Assertions.assertTrue(node.getLft() > previous, () -> "boundary reused at " + node.getName());
+            Assertions.assertTrue(node.getLft() < node.getRgt(), () -> "lft >= rgt for " + node.getName());
+            while (!ancestors.isEmpty() && ancestors.peek().getRgt() < node.getLft()) {
+                ancestors.pop();
+            }
+            if (!ancestors.isEmpty()) {
+                Assertions.assertTrue(node.getRgt() < ancestors.peek().getRgt(), () -> "overlapping interval at " + node.getName());
+            }
+            Assertions.assertEquals(ancestors.size(), node.getDepth(), () -> "wrong depth for " + node.getName());
+            boolean leaf = i + 1 == lftOrdered.size() || lftOrdered.get(i + 1).getLft() > node.getRgt();
+            Assertions.assertEquals(leaf, node.getRgt() == node.getLft() + 1, () -> "leaf flag mismatch for " + node.getName());
+            ancestors.push(node);
+            previous = node.getLft();
+        }
+    }
+}
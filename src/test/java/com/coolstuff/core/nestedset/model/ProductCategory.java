@@ -0,0 +1,41 @@
+package com.coolstuff.core.nestedset.model;
+
+import com.coolstuff.core.nestedset.columns.AggregateColumn;
+import com.coolstuff.core.nestedset.columns.DepthColumn;
+import com.coolstuff.core.nestedset.columns.LeftColumn;
+import com.coolstuff.core.nestedset.columns.NameColumn;
+import com.coolstuff.core.nestedset.columns.RightColumn;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "product_category")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProductCategory extends NodeComponent {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @NameColumn
+    private String name;
+    @LeftColumn
+    private Integer lft;
+    @RightColumn
+    private Integer rgt;
+    @DepthColumn
+    private Integer depth;
+    private Integer productCount;
+    @AggregateColumn(source = "productCount")
+    private Long totalProductCount;
+
+    public ProductCategory(String name, Integer productCount) {
+        this.name = name;
+        this.productCount = productCount;
+    }
+}
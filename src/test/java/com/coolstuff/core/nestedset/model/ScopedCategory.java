@@ -0,0 +1,44 @@
+package com.coolstuff.core.nestedset.model;
+
+import com.coolstuff.core.nestedset.columns.DepthColumn;
+import com.coolstuff.core.nestedset.columns.LeftColumn;
+import com.coolstuff.core.nestedset.columns.NameColumn;
+import com.coolstuff.core.nestedset.columns.RightColumn;
+import com.coolstuff.core.nestedset.columns.TreeScopeColumn;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "scoped_category", indexes = {
+        @Index(columnList = "tree_id, lft"),
+        @Index(columnList = "tree_id, rgt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ScopedCategory extends NodeComponent {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @TreeScopeColumn
+    private Long treeId;
+    @NameColumn
+    private String name;
+    @LeftColumn
+    private Integer lft;
+    @RightColumn
+    private Integer rgt;
+    @DepthColumn
+    private Integer depth;
+
+    public ScopedCategory(Long treeId, String name) {
+        this.treeId = treeId;
+        this.name = name;
+    }
+}
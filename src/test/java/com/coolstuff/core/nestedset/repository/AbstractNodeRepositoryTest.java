@@ -0,0 +1,237 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.model.NodeView;
+import com.coolstuff.core.nestedset.service.CategoryService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class AbstractNodeRepositoryTest {
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shiftBoundariesFrom() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+        Category first = tree.get(1);
+
+        repository.shiftBoundariesFrom(first.getRgt(), 2);
+
+        Assertions.assertEquals(16, tree.getFirst().getRgt());
+        Assertions.assertEquals(2, first.getLft());
+        Assertions.assertEquals(9, first.getRgt());
+        Assertions.assertEquals(10, tree.get(4).getLft());
+    }
+
+    @Test
+    void insertStatementCountDoesNotGrowWithTreeSize() {
+        Assertions.assertEquals(countInsertStatements(20), countInsertStatements(2000));
+    }
+
+    @Test
+    void deleteKeepsNumberingDense() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+        CategoryService service = new CategoryService(repository);
+
+        service.deleteNode(tree.get(1).getId());
+        entityManager.clear();
+
+        List<Category> remaining = repository.findAllByOrderByLft();
+        Assertions.assertEquals(4, remaining.size());
+        Assertions.assertEquals(List.of(1, 2, 3, 5), remaining.stream().map(Category::getLft).toList());
+        Assertions.assertEquals(8, remaining.getFirst().getRgt());
+    }
+
+    @Test
+    void findMaxRight() {
+        Assertions.assertEquals(0, repository.findMaxRight());
+        persist(CategoryTrees.generate(7, 2));
+
+        Assertions.assertEquals(14, repository.findMaxRight());
+    }
+
+    @Test
+    void streamSubtreeDetachesRows() {
+        List<Category> tree = persist(CategoryTrees.generate(13, 3));
+        entityManager.clear();
+
+        try (Stream<Category> subtree = repository.streamSubtree(tree.get(1).getLft(), tree.get(1).getRgt())) {
+            List<Category> nodes = subtree.toList();
+            Assertions.assertEquals(List.of("Node.0", "Node.0.0", "Node.0.1", "Node.0.2"), nodes.stream().map(Category::getName).toList());
+            Assertions.assertTrue(nodes.stream().noneMatch(entityManager::contains));
+        }
+        try (Stream<Category> all = repository.streamAll()) {
+            CategoryTrees.assertDense(all.toList());
+        }
+    }
+
+    @Test
+    void findParentOf() {
+        List<Category> tree = persist(CategoryTrees.generate(13, 3));
+
+        List<Category> path = repository.findParentOf(tree.get(6).getId());
+
+        Assertions.assertEquals(List.of("Node", "Node.1", "Node.1.0"), path.stream().map(Category::getName).toList());
+        Assertions.assertTrue(repository.findParentOf(-1L).isEmpty());
+    }
+
+    @Test
+    void findImmediateChildrenMatchesHavingQuery() {
+        List<Category> tree = persist(CategoryTrees.generate(200, 3));
+        entityManager.clear();
+
+        for (Category node : tree) {
+            List<Long> expected = havingQueryImmediateChildren(node.getId()).stream().map(Category::getId).toList();
+            List<Long> actual = repository.findImmediateChildren(node.getId()).stream().map(Category::getId).toList();
+            Assertions.assertEquals(expected, actual, () -> "children of " + node.getName());
+        }
+    }
+
+    @Test
+    void findDescendantsUpToDepth() {
+        List<Category> tree = persist(CategoryTrees.generate(40, 3));
+
+        List<Category> twoLevels = repository.findDescendants(tree.get(1).getId(), 2);
+
+        Assertions.assertEquals(13, twoLevels.size());
+        Assertions.assertTrue(twoLevels.stream().allMatch(node -> node.getDepth() <= 3));
+        Assertions.assertEquals(1, repository.findDescendants(tree.get(1).getId(), 0).size());
+        List<Category> subtree = repository.findChildren(tree.get(1).getLft(), tree.get(1).getRgt());
+        Assertions.assertEquals(subtree, repository.findDescendants(tree.get(1).getId(), null));
+        Assertions.assertEquals(subtree, repository.findDescendants(tree.get(1).getId(), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void pagesConcatenateToTheUnpagedReads() {
+        List<Category> tree = persist(CategoryTrees.generate(200, 3));
+        Category subtree = tree.get(1);
+
+        Assertions.assertEquals(ids(repository.findChildren(subtree.getLft(), subtree.getRgt())),
+                ids(readPages(afterLft -> repository.findChildrenPage(subtree.getLft(), subtree.getRgt(), afterLft, 7))));
+        Assertions.assertEquals(ids(repository.findImmediateChildren(tree.getFirst().getId())),
+                ids(readPages(afterLft -> repository.findImmediateChildrenPage(tree.getFirst().getId(), afterLft, 2))));
+        Assertions.assertEquals(ids(repository.findDescendants(subtree.getId(), 2)),
+                ids(readPages(afterLft -> repository.findDescendantsPage(subtree.getId(), 2, afterLft, 5))));
+        Assertions.assertEquals(ids(repository.findChildren(subtree.getLft(), subtree.getRgt())),
+                ids(readPages(afterLft -> repository.findDescendantsPage(subtree.getId(), null, afterLft, 9))));
+        Assertions.assertTrue(repository.findImmediateChildrenPage(-1L, null, 10).isEmpty());
+    }
+
+    @Test
+    void viewsMatchEntitiesWithoutManagingThem() {
+        List<Category> tree = persist(CategoryTrees.generate(40, 3));
+        Category subtree = tree.get(1);
+        List<NodeView> expected = repository.findChildren(subtree.getLft(), subtree.getRgt()).stream()
+                .map(node -> new NodeView(node.getId(), node.getName(), node.getLft(), node.getRgt(), node.getDepth()))
+                .toList();
+        entityManager.clear();
+
+        Assertions.assertEquals(expected, repository.findSubtreeViews(subtree.getLft(), subtree.getRgt()));
+        Assertions.assertEquals(List.of("Node", "Node.0", "Node.0.0"),
+                repository.findPathViews(tree.get(2).getId()).stream().map(NodeView::name).toList());
+        Assertions.assertEquals(4, repository.findDescendantViews(subtree.getId(), 1).size());
+        Assertions.assertEquals(expected, repository.findDescendantViews(subtree.getId(), null));
+        Assertions.assertEquals(40, repository.findAllViews().size());
+        Assertions.assertEquals(0, entityManager.unwrap(SessionImplementor.class).getPersistenceContextInternal().getNumberOfManagedEntities());
+    }
+
+    private List<Category> readPages(Function<Integer, List<Category>> nextPage) {
+        List<Category> all = new ArrayList<>();
+        List<Category> page = nextPage.apply(null);
+        all.addAll(page);
+        while (!page.isEmpty()) {
+            page = nextPage.apply(page.getLast().getLft());
+            all.addAll(page);
+        }
+        return all;
+    }
+
+    private List<Long> ids(List<Category> nodes) {
+        return nodes.stream().map(Category::getId).toList();
+    }
+
+    /**
+     * The textbook GROUP BY/HAVING query findImmediateChildren used before the depth column was used.
+     */
+    private List<Category> havingQueryImmediateChildren(Long nodeId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Category> query = cb.createQuery(Category.class);
+
+        Root<Category> node = query.from(Category.class);
+        Root<Category> parent = query.from(Category.class);
+        Root<Category> subParent = query.from(Category.class);
+
+        Subquery<Integer> subQuery = query.subquery(Integer.class);
+        Root<Category> subNode = subQuery.from(Category.class);
+        Root<Category> subParentNode = subQuery.from(Category.class);
+
+        subQuery.select(cb.diff(cb.count(subParentNode), 1).as(Integer.class))
+                .where(
+                        cb.between(subNode.get("lft"), subParentNode.get("lft"), subParentNode.get("rgt")),
+                        cb.equal(subNode.get("id"), nodeId)
+                )
+                .groupBy(subNode.get("id"), subNode.get("name"), subNode.get("lft"));
+
+        query.multiselect(
+                        node.get("id"),
+                        node.get("name"),
+                        node.get("lft"),
+                        node.get("rgt"),
+                        cb.diff(cb.count(parent), cb.sum(subQuery.getSelection(), 1)).as(Integer.class)
+                )
+                .where(
+                        cb.between(node.get("lft"), parent.get("lft"), parent.get("rgt")),
+                        cb.between(node.get("lft"), subParent.get("lft"), subParent.get("rgt")),
+                        cb.equal(subParent.get("id"), nodeId)
+                )
+                .groupBy(node.get("id"), node.get("name"), subQuery.getSelection(), node.get("lft"))
+                .having(cb.le(cb.diff(cb.count(parent), cb.sum(subQuery.getSelection(), 1)), 1))
+                .orderBy(cb.asc(node.get("lft")));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private long countInsertStatements(int size) {
+        repository.deleteAllInBatch();
+        List<Category> tree = persist(CategoryTrees.generate(size, 4));
+        Long parentId = tree.get(1).getId();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        new CategoryService(repository).createNode(new Category("Inserted"), parentId);
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+
+        Category root = repository.findById(tree.getFirst().getId()).orElseThrow();
+        Assertions.assertEquals(size * 2 + 2, root.getRgt());
+        return statements;
+    }
+
+    private List<Category> persist(List<Category> tree) {
+        tree.forEach(entityManager::persist);
+        entityManager.flush();
+        return tree;
+    }
+}
@@ -0,0 +1,6 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.Category;
+
+public interface CategoryRepository extends JpaNodeRepository<Category, Long> {
+}
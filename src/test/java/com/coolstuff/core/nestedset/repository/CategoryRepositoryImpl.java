@@ -0,0 +1,11 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.Category;
+import jakarta.persistence.EntityManager;
+
+public class CategoryRepositoryImpl extends AbstractNodeRepository<Category, Long> {
+
+    public CategoryRepositoryImpl(EntityManager entityManager) {
+        super(Category.class, entityManager);
+    }
+}
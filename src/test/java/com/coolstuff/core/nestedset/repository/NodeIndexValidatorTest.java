@@ -0,0 +1,54 @@
+package com.coolstuff.core.nestedset.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@DataJpaTest
+@ExtendWith(OutputCaptureExtension.class)
+class NodeIndexValidatorTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CategoryRepositoryImpl categoryRepository;
+
+    @Autowired
+    private ScopedCategoryRepositoryImpl scopedCategoryRepository;
+
+    @Autowired
+    private ProductCategoryRepositoryImpl productCategoryRepository;
+
+    @Test
+    void warnsWithTheDdlOfMissingIndexes(CapturedOutput output) {
+        NodeIndexValidator validator = new NodeIndexValidator(dataSource, List.of(categoryRepository, scopedCategoryRepository));
+
+        List<NodeIndex> missing = validator.validate(categoryRepository);
+
+        // (lft) is served by the covering index
+        Assertions.assertEquals(List.of(List.of("lft", "rgt", "depth"), List.of("rgt")), missing.stream().map(NodeIndex::columns).toList());
+        Assertions.assertTrue(output.getOut().contains("create index category_lft_rgt_depth_idx on category (lft, rgt, depth)"));
+        Assertions.assertEquals(List.of(List.of("tree_id", "lft", "rgt", "depth")),
+                validator.validate(scopedCategoryRepository).stream().map(NodeIndex::columns).toList());
+    }
+
+    @Test
+    void createsMissingIndexes() {
+        NodeIndexValidator validator = new NodeIndexValidator(dataSource, List.of(productCategoryRepository));
+        validator.setMode(IndexValidationMode.CREATE);
+
+        validator.afterSingletonsInstantiated();
+
+        Assertions.assertTrue(validator.validate(productCategoryRepository).isEmpty());
+        validator.setMode(IndexValidationMode.FAIL);
+        Assertions.assertDoesNotThrow(() -> validator.validate(productCategoryRepository));
+    }
+}
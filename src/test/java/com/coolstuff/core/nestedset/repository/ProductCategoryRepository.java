@@ -0,0 +1,6 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.ProductCategory;
+
+public interface ProductCategoryRepository extends JpaNodeRepository<ProductCategory, Long> {
+}
@@ -0,0 +1,11 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.ProductCategory;
+import jakarta.persistence.EntityManager;
+
+public class ProductCategoryRepositoryImpl extends AbstractNodeRepository<ProductCategory, Long> {
+
+    public ProductCategoryRepositoryImpl(EntityManager entityManager) {
+        super(ProductCategory.class, entityManager);
+    }
+}
@@ -0,0 +1,9 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.ScopedCategory;
+
+import java.util.List;
+
+public interface ScopedCategoryRepository extends JpaNodeRepository<ScopedCategory, Long> {
+    List<ScopedCategory> findByTreeIdOrderByLft(Long treeId);
+}
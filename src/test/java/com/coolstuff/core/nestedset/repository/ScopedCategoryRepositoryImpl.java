@@ -0,0 +1,11 @@
+package com.coolstuff.core.nestedset.repository;
+
+import com.coolstuff.core.nestedset.model.ScopedCategory;
+import jakarta.persistence.EntityManager;
+
+public class ScopedCategoryRepositoryImpl extends AbstractNodeRepository<ScopedCategory, Long> {
+
+    public ScopedCategoryRepositoryImpl(EntityManager entityManager) {
+        super(ScopedCategory.class, entityManager);
+    }
+}
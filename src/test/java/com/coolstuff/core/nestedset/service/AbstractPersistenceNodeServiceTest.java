@@ -0,0 +1,278 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.repository.CategoryRepository;
+import com.coolstuff.core.nestedset.model.CategoryComponentFactory;
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.NodeView;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class AbstractPersistenceNodeServiceTest {
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private CategoryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CategoryService(repository);
+    }
+
+    @Test
+    void moveNodeAsLastChild() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+
+        Category moved = service.moveNode(tree.get(1).getId(), tree.get(4).getId(), MovePosition.LAST_CHILD);
+
+        Assertions.assertEquals(7, moved.getLft());
+        Assertions.assertEquals(12, moved.getRgt());
+        Assertions.assertEquals(2, moved.getDepth());
+        assertTree("Node", "Node.1", "Node.1.0", "Node.1.1", "Node.0", "Node.0.0", "Node.0.1");
+    }
+
+    @Test
+    void moveNodeAsFirstChild() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+
+        service.moveNode(tree.get(6).getId(), tree.get(1).getId(), MovePosition.FIRST_CHILD);
+
+        assertTree("Node", "Node.0", "Node.1.1", "Node.0.0", "Node.0.1", "Node.1", "Node.1.0");
+    }
+
+    @Test
+    void moveBeforeAndAfterSibling() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+
+        service.moveBefore(tree.get(4).getId(), tree.get(1).getId());
+        assertTree("Node", "Node.1", "Node.1.0", "Node.1.1", "Node.0", "Node.0.0", "Node.0.1");
+
+        service.moveAfter(tree.get(5).getId(), tree.get(0).getId());
+        assertTree("Node", "Node.1", "Node.1.1", "Node.0", "Node.0.0", "Node.0.1", "Node.1.0");
+        Assertions.assertEquals(0, repository.findById(tree.get(5).getId()).orElseThrow().getDepth());
+    }
+
+    @Test
+    void moveIntoOwnSubtreeIsRejected() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+
+        Assertions.assertThrows(RuntimeException.class,
+                () -> service.moveNode(tree.get(1).getId(), tree.get(2).getId(), MovePosition.LAST_CHILD));
+    }
+
+    @Test
+    void createSubtreeWithOneShift() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+        List<Category> batch = CategoryTrees.generate(300, 3);
+        batch.forEach(node -> {
+            node.setName("Imported" + node.getName());
+            node.setLft(null);
+            node.setRgt(null);
+        });
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        service.createSubtree(tree.get(1).getId(), batch);
+        entityManager.flush();
+
+        Assertions.assertTrue(statistics.getPrepareStatementCount() < 30, "inserts were not batched");
+        Assertions.assertEquals(0, statistics.getEntityUpdateCount());
+        entityManager.clear();
+        List<Category> nodes = repository.findAllByOrderByLft();
+        CategoryTrees.assertDense(nodes);
+        Assertions.assertEquals(307, nodes.size());
+        Assertions.assertEquals("ImportedNode", nodes.get(4).getName());
+        Assertions.assertEquals(2, nodes.get(4).getDepth());
+    }
+
+    @Test
+    void createSubtreeRejectsSkippedLevels() {
+        List<Category> tree = persist(CategoryTrees.generate(3, 2));
+        Category orphan = new Category("Orphan");
+        orphan.setDepth(1);
+
+        Assertions.assertThrows(RuntimeException.class, () -> service.createSubtree(tree.getFirst().getId(), List.of(orphan)));
+    }
+
+    @Test
+    void importTree() {
+        persist(CategoryTrees.generate(3, 2));
+        Optional<NodeComponent> imported = new TreeBuilderImpl(new CategoryComponentFactory())
+                .buildTree(List.copyOf(CategoryTrees.generate(13, 3)));
+
+        service.importTree(imported.orElseThrow(), component -> new Category(component.getName()));
+
+        entityManager.flush();
+        entityManager.clear();
+        List<Category> nodes = repository.findAllByOrderByLft();
+        CategoryTrees.assertDense(nodes);
+        Assertions.assertEquals(List.of("Node", "Node.0", "Node.1", "Node", "Node.0", "Node.0.0"),
+                nodes.subList(0, 6).stream().map(Category::getName).toList());
+        Assertions.assertEquals(7, nodes.get(3).getLft());
+    }
+
+    @Test
+    void sparseNumberingKeepsNestedSet() {
+        service.setNumberingMode(NumberingMode.SPARSE);
+        service.setNumberingGap(4);
+        List<Category> nodes = new ArrayList<>(List.of(service.createNode(new Category("Root"))));
+        Random random = new Random(7);
+
+        for (int i = 0; i < 300; i++) {
+            Category parent = nodes.get(random.nextInt(nodes.size()));
+            nodes.add(service.createNode(new Category("Node" + i), parent.getId()));
+            if (i % 25 == 24) {
+                Category deleted = nodes.get(1 + random.nextInt(nodes.size() - 1));
+                service.deleteNode(deleted.getId());
+                nodes.removeIf(node -> !entityManager.contains(node));
+            }
+            if (i % 40 == 39) {
+                Category target = nodes.get(random.nextInt(nodes.size()));
+                Category moved = nodes.get(1 + random.nextInt(nodes.size() - 1));
+                if (target.getLft() < moved.getLft() || target.getRgt() > moved.getRgt()) {
+                    service.moveNode(moved.getId(), target.getId(), MovePosition.LAST_CHILD);
+                }
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        List<Category> stored = repository.findAllByOrderByLft();
+        Assertions.assertEquals(nodes.size(), stored.size());
+        CategoryTrees.assertNestedSet(stored);
+    }
+
+    @Test
+    void rebalanceRestoresDenseNumbering() {
+        List<Category> tree = persist(CategoryTrees.generate(40, 3));
+        service.setNumberingMode(NumberingMode.SPARSE);
+        service.rebalance(tree.getFirst().getId());
+        service.createNode(new Category("Sparse"), tree.get(5).getId());
+
+        service.setNumberingMode(NumberingMode.DENSE);
+        service.rebalance(tree.getFirst().getId());
+
+        entityManager.flush();
+        entityManager.clear();
+        CategoryTrees.assertDense(repository.findAllByOrderByLft());
+    }
+
+    /**
+     * Compares how many existing rows are renumbered by the same inserts in dense and in sparse mode.
+     * Wall clock throughput is measured by the benchmarks, this keeps the difference under test.
+     */
+    @Test
+    void sparseInsertsRewriteFewerRows() {
+        int denseRows = rowsRewrittenByInserts(NumberingMode.DENSE);
+        repository.deleteAllInBatch();
+        int sparseRows = rowsRewrittenByInserts(NumberingMode.SPARSE);
+
+        Assertions.assertTrue(sparseRows * 10 < denseRows, () -> "sparse " + sparseRows + " vs dense " + denseRows);
+    }
+
+    private int rowsRewrittenByInserts(NumberingMode mode) {
+        List<Category> tree = persist(CategoryTrees.generate(1000, 4));
+        service.setNumberingMode(mode);
+        service.rebalance(tree.getFirst().getId());
+        entityManager.flush();
+        entityManager.clear();
+        Map<Long, List<Integer>> before = boundaries();
+
+        Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            service.createNode(new Category("Inserted" + i), tree.get(random.nextInt(tree.size())).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<Long, List<Integer>> after = boundaries();
+        return (int) before.entrySet().stream().filter(entry -> !entry.getValue().equals(after.get(entry.getKey()))).count();
+    }
+
+    private Map<Long, List<Integer>> boundaries() {
+        return repository.findAllByOrderByLft().stream()
+                .collect(Collectors.toMap(Category::getId, node -> List.of(node.getLft(), node.getRgt())));
+    }
+
+    @Test
+    void findPathIsCachedUntilTheTreeChanges() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+        PathCache<Long> cache = new PathCache<>();
+        service.setPathCache(cache);
+        Long leafId = tree.get(6).getId();
+
+        List<NodeView> path = service.findPathViews(leafId);
+        Assertions.assertSame(path, service.findPathViews(leafId));
+        Assertions.assertEquals(1, cache.size());
+
+        service.moveNode(tree.get(4).getId(), tree.get(2).getId(), MovePosition.LAST_CHILD);
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(List.of("Node", "Node.0", "Node.0.0", "Node.1", "Node.1.1"),
+                service.findPathViews(leafId).stream().map(NodeView::name).toList());
+    }
+
+    @Test
+    void pathCacheEvictsTheLeastRecentlyReadPath() {
+        PathCache<Long> cache = new PathCache<>(2);
+        cache.get(1L, id -> List.of(new NodeView(id, "a", 1, 2, 0)));
+        cache.get(2L, id -> List.of(new NodeView(id, "b", 3, 4, 0)));
+        cache.get(1L, id -> List.of());
+        cache.get(3L, id -> List.of(new NodeView(id, "c", 5, 6, 0)));
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals("a", cache.get(1L, id -> List.of()).getFirst().name());
+        Assertions.assertTrue(cache.get(2L, id -> List.of()).isEmpty());
+    }
+
+    @Test
+    void treeExtentAppendsRootsWithoutReading() {
+        List<Category> tree = persist(CategoryTrees.generate(7, 2));
+        TreeExtentCounter extent = new TreeExtentCounter();
+        service.setTreeExtent(extent);
+        service.reseedTreeExtent();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Category root = service.createNode(new Category("Second"));
+
+        Assertions.assertEquals(0, statistics.getQueryExecutionCount());
+        Assertions.assertEquals(15, root.getLft());
+        service.createNode(new Category("Child"), tree.get(1).getId());
+        service.deleteNode(tree.get(4).getId());
+        service.createSubtree(root.getId(), new ArrayList<>(List.of(new Category("A"), new Category("B"))));
+        Assertions.assertEquals(repository.findMaxRight(), extent.get());
+    }
+
+    private void assertTree(String... names) {
+        entityManager.flush();
+        entityManager.clear();
+        List<Category> nodes = repository.findAllByOrderByLft();
+        CategoryTrees.assertDense(nodes);
+        Assertions.assertEquals(List.of(names), nodes.stream().map(Category::getName).toList());
+    }
+
+    private List<Category> persist(List<Category> tree) {
+        tree.forEach(entityManager::persist);
+        entityManager.flush();
+        return tree;
+    }
+}
@@ -0,0 +1,126 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.ProductCategory;
+import com.coolstuff.core.nestedset.repository.ProductCategoryRepository;
+import com.coolstuff.core.nestedset.repository.ProductCategoryRepositoryImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+@DataJpaTest
+class AggregateColumnTest {
+
+    @Autowired
+    private ProductCategoryRepository repository;
+
+    @Autowired
+    private ProductCategoryRepositoryImpl repositoryImpl;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AbstractPersistenceNodeService<ProductCategory, Long> service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AbstractPersistenceNodeService<>(repository) {
+        };
+    }
+
+    @Test
+    void createKeepsAncestorTotals() {
+        ProductCategory root = service.createNode(new ProductCategory("Root", 1));
+        ProductCategory a = service.createNode(new ProductCategory("A", 2), root.getId());
+        ProductCategory b = service.createNode(new ProductCategory("B", 3), root.getId());
+        ProductCategory a1 = service.createNode(new ProductCategory("A1", 4), a.getId());
+
+        Assertions.assertEquals(List.of(10L, 6L, 4L, 3L), totals());
+
+        service.createNodes(List.of(
+                new NodeInsert<>(new ProductCategory("B1", 5), b.getId()),
+                new NodeInsert<>(new ProductCategory("A1a", 7), a1.getId()),
+                new NodeInsert<>(new ProductCategory("B2", 6), b.getId())));
+        assertConsistent();
+        Assertions.assertEquals(28L, totalOf(root.getId()));
+
+        service.createSubtree(a.getId(), List.of(
+                subtreeNode("A2", 10, 0),
+                subtreeNode("A2a", 20, 1),
+                subtreeNode("A3", 30, 0)));
+        assertConsistent();
+        Assertions.assertEquals(73L, totalOf(a.getId()));
+    }
+
+    @Test
+    void deleteAndMoveKeepAncestorTotals() {
+        ProductCategory root = service.createNode(new ProductCategory("Root", 1));
+        ProductCategory a = service.createNode(new ProductCategory("A", 2), root.getId());
+        ProductCategory b = service.createNode(new ProductCategory("B", 3), root.getId());
+        ProductCategory a1 = service.createNode(new ProductCategory("A1", 4), a.getId());
+        service.createNode(new ProductCategory("B1", 5), b.getId());
+
+        service.moveNode(a1.getId(), b.getId(), MovePosition.FIRST_CHILD);
+        assertConsistent();
+        Assertions.assertEquals(2L, totalOf(a.getId()));
+        Assertions.assertEquals(12L, totalOf(b.getId()));
+
+        service.moveNode(b.getId(), a.getId(), MovePosition.LAST_CHILD);
+        assertConsistent();
+        Assertions.assertEquals(14L, totalOf(a.getId()));
+
+        service.deleteNode(b.getId());
+        assertConsistent();
+        Assertions.assertEquals(3L, totalOf(root.getId()));
+    }
+
+    @Test
+    void rebuildRecomputesTotals() {
+        ProductCategory root = service.createNode(new ProductCategory("Root", 1));
+        ProductCategory a = service.createNode(new ProductCategory("A", 2), root.getId());
+        service.createNode(new ProductCategory("B", 3), root.getId());
+        ProductCategory a1 = service.createNode(new ProductCategory("A1", 4), a.getId());
+        entityManager.flush();
+        // the rgt half of a boundary shift, which leaves B inside A1
+        entityManager.createQuery("update ProductCategory c set c.rgt = c.rgt + 2 where c.rgt >= 3").executeUpdate();
+        entityManager.clear();
+
+        Assertions.assertTrue(service.rebuild(new NestedSetValidator<>(repositoryImpl), null) > 0);
+
+        assertConsistent();
+        Assertions.assertEquals(7L, totalOf(a1.getId()));
+    }
+
+    private ProductCategory subtreeNode(String name, int productCount, int depth) {
+        ProductCategory node = new ProductCategory(name, productCount);
+        node.setDepth(depth);
+        return node;
+    }
+
+    private long totalOf(Long id) {
+        return repository.findById(id).orElseThrow().getTotalProductCount();
+    }
+
+    private List<Long> totals() {
+        entityManager.flush();
+        entityManager.clear();
+        return repository.findAllByOrderByLft().stream().map(ProductCategory::getTotalProductCount).toList();
+    }
+
+    private void assertConsistent() {
+        entityManager.flush();
+        entityManager.clear();
+        List<ProductCategory> nodes = repository.findAllByOrderByLft();
+        for (ProductCategory node : nodes) {
+            long expected = nodes.stream()
+                    .filter(other -> other.getLft() >= node.getLft() && other.getRgt() <= node.getRgt())
+                    .mapToLong(ProductCategory::getProductCount)
+                    .sum();
+            Assertions.assertEquals(expected, node.getTotalProductCount(), () -> "total of " + node.getName());
+        }
+    }
+}
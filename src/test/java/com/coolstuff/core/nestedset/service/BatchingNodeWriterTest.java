@@ -0,0 +1,140 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.repository.CategoryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase
+class BatchingNodeWriterTest {
+
+    @Autowired
+    private CategoryService service;
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void coalescesConcurrentInserts() throws Exception {
+        List<Category> tree = repository.saveAll(CategoryTrees.generate(15, 2));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<CompletableFuture<Category>> created = new ArrayList<>();
+        try (BatchingNodeWriter<Category, Long> writer = new BatchingNodeWriter<>(service, transactionManager, 500, Duration.ofMillis(20));
+             ExecutorService submitters = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<CompletableFuture<Category>>> submitted = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                Long parentId = tree.get(ThreadLocalRandom.current().nextInt(tree.size())).getId();
+                submitted.add(CompletableFuture.supplyAsync(() -> writer.insert(new Category("New"), parentId), submitters));
+            }
+            for (CompletableFuture<CompletableFuture<Category>> submission : submitted) {
+                created.add(submission.get());
+            }
+            CompletableFuture.allOf(created.toArray(CompletableFuture[]::new)).get();
+        }
+
+        List<Category> nodes = repository.findAllByOrderByLft();
+        Assertions.assertEquals(1015, nodes.size());
+        CategoryTrees.assertDense(nodes);
+        // one boundary UPDATE per batch instead of one per insert
+        Assertions.assertTrue(statistics.getQueryExecutionCount() < 50, () -> statistics.getQueryExecutionCount() + " queries");
+    }
+
+    @Test
+    void appliesCommandsInOrderAndIsolatesFailures() throws Exception {
+        List<Category> tree = repository.saveAll(CategoryTrees.generate(7, 2));
+
+        CompletableFuture<Category> child;
+        CompletableFuture<Category> orphan;
+        CompletableFuture<Void> deleted;
+        CompletableFuture<Category> moved;
+        try (BatchingNodeWriter<Category, Long> writer = new BatchingNodeWriter<>(service, transactionManager, 100, Duration.ofSeconds(1))) {
+            child = writer.insert(new Category("Child"), tree.get(2).getId());
+            orphan = writer.insert(new Category("Orphan"), -1L);
+            deleted = writer.delete(tree.get(3).getId());
+            moved = writer.move(tree.get(4).getId(), tree.get(1).getId(), MovePosition.FIRST_CHILD);
+        }
+
+        Assertions.assertEquals(3, child.get().getDepth());
+        Assertions.assertNull(deleted.get());
+        Assertions.assertEquals("Node.1", moved.get().getName());
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class, orphan::get);
+        Assertions.assertEquals("Parent not found", failure.getCause().getMessage());
+
+        List<Category> nodes = repository.findAllByOrderByLft();
+        CategoryTrees.assertDense(nodes);
+        Assertions.assertEquals(List.of("Node", "Node.0", "Node.1", "Node.1.0", "Node.1.1", "Node.0.0", "Child"),
+                nodes.stream().map(Category::getName).toList());
+    }
+
+    @Test
+    void retriesKeepAssignedIds() throws Exception {
+        @SuppressWarnings("unchecked")
+        PersistenceNodeService<Category, Long> failingService = Mockito.mock(PersistenceNodeService.class);
+        List<Long> retriedIds = new ArrayList<>();
+        Mockito.when(failingService.createNodes(Mockito.anyList())).thenAnswer(invocation -> {
+            List<NodeInsert<Category, Long>> inserts = invocation.getArgument(0);
+            if (inserts.size() > 1) {
+                // the batch generates ids before it fails and is rolled back
+                inserts.stream().filter(insert -> insert.node().getId() == null).forEach(insert -> insert.node().setId(99L));
+                throw new RuntimeException("Batch failed");
+            }
+            retriedIds.add(inserts.getFirst().node().getId());
+            return List.of(inserts.getFirst().node());
+        });
+        Category assigned = new Category("Assigned");
+        assigned.setId(42L);
+
+        CompletableFuture<Category> first;
+        try (BatchingNodeWriter<Category, Long> writer = new BatchingNodeWriter<>(failingService, transactionManager, 100, Duration.ofSeconds(1))) {
+            first = writer.insert(assigned, 1L);
+            writer.insert(new Category("Generated"), 1L);
+        }
+
+        Assertions.assertEquals(Arrays.asList(42L, null), retriedIds);
+        Assertions.assertEquals(42L, first.get().getId());
+    }
+
+    @TestConfiguration
+    static class Services {
+        @Bean
+        CategoryService categoryService(CategoryRepository repository) {
+            return new CategoryService(repository);
+        }
+    }
+}
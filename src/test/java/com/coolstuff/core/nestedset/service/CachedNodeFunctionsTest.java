@@ -0,0 +1,111 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryComponentFactory;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.repository.CategoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@DataJpaTest
+class CachedNodeFunctionsTest {
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private CachedNodeFunctions<Category, Long> functions;
+
+    private List<Category> tree;
+
+    @BeforeEach
+    void setUp() {
+        CategoryComponentFactory factory = new CategoryComponentFactory();
+        functions = new CachedNodeFunctions<>(repository, new TreeBuilderImpl(factory), factory);
+        tree = CategoryTrees.generate(15, 2);
+        tree.forEach(entityManager::persist);
+        entityManager.flush();
+    }
+
+    @Test
+    void answersQueriesFromOneSnapshot() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        functions.bindTo(registry);
+        Long nodeId = tree.get(1).getId();
+
+        Assertions.assertEquals(List.of("Node.0", "Node.0.0", "Node.0.0.0", "Node.0.0.1", "Node.0.1", "Node.0.1.0", "Node.0.1.1"),
+                names(functions.findChilderenOf(nodeId).orElseThrow()));
+        Assertions.assertEquals(List.of("Node.0", "Node.0.0", "Node.0.1"),
+                names(functions.findImmediateChildren(nodeId).orElseThrow()));
+        Assertions.assertEquals(List.of("Node", "Node.0", "Node.0.1", "Node.0.1.0"),
+                names(functions.findParentOf(tree.get(6).getId()).orElseThrow()));
+        Assertions.assertEquals(List.of("Node.0.0.0", "Node.0.0.1", "Node.0.1.0", "Node.0.1.1"),
+                functions.findLeavesOf(nodeId).stream().map(NodeComponent::getName).toList());
+        Assertions.assertEquals(15, names(functions.getAllNodes().orElseThrow()).size());
+        Assertions.assertTrue(functions.findChilderenOf(-1L).isEmpty());
+
+        Assertions.assertEquals(1, functions.getMissCount());
+        Assertions.assertEquals(5, functions.getHitCount());
+        Assertions.assertEquals(5, registry.get("nestedset.snapshot.hits").functionCounter().count());
+    }
+
+    @Test
+    void snapshotIsReplacedOnceTheTransactionCommits() {
+        List<Runnable> loads = new ArrayList<>();
+        functions.setLoadExecutor(loads::add);
+        CategoryService service = new CategoryService(repository);
+        service.addTreeChangeListener(functions);
+        NodeSnapshot before = functions.getSnapshot();
+        Long movedId = tree.get(8).getId();
+        Long parentId = tree.get(1).getId();
+
+        service.moveNode(movedId, parentId, MovePosition.FIRST_CHILD);
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            // the reload waits on the executor, readers keep the previous snapshot meanwhile
+            Assertions.assertSame(before, functions.getSnapshot());
+            Assertions.assertEquals(1, loads.size());
+
+            loads.removeFirst().run();
+            NodeSnapshot after = functions.getSnapshot();
+            Assertions.assertNotSame(before, after);
+            List<NodeComponent> path = after.getPath(movedId);
+            Assertions.assertEquals(parentId, path.get(path.size() - 2).getId());
+            Assertions.assertEquals(after.getSubtree(parentId).getFirst().getLft() + 1, path.getLast().getLft());
+            Assertions.assertEquals(1, functions.getMissCount());
+        } finally {
+            TestTransaction.start();
+            repository.deleteAllInBatch();
+            TestTransaction.flagForCommit();
+            TestTransaction.end();
+        }
+    }
+
+    private List<String> names(NodeComponent root) {
+        List<String> names = new ArrayList<>();
+        List<NodeComponent> pending = new ArrayList<>(List.of(root));
+        while (!pending.isEmpty()) {
+            NodeComponent node = pending.removeLast();
+            names.add(node.getName());
+            if (node.getRgt() != node.getLft() + 1) {
+                List<NodeComponent> children = new ArrayList<>(node.getChildren());
+                children.sort((a, b) -> b.getLft() - a.getLft());
+                pending.addAll(children);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,11 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.repository.JpaNodeRepository;
+
+public class CategoryService extends AbstractPersistenceNodeService<Category, Long> {
+
+    public CategoryService(JpaNodeRepository<Category, Long> jpaNodeRepository) {
+        super(jpaNodeRepository);
+    }
+}
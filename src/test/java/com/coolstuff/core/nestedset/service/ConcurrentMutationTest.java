@@ -0,0 +1,127 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.repository.CategoryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class ConcurrentMutationTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 250;
+
+    @Autowired
+    private CategoryService service;
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        service.setMutationCoordinator(null);
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void stripedLock() throws Exception {
+        service.setMutationCoordinator(new StripedLockCoordinator());
+        stress(new MutationRetry(1, 0));
+    }
+
+    @Test
+    void pessimisticLock() throws Exception {
+        service.setMutationCoordinator(new PessimisticLockCoordinator(entityManager, transactionManager));
+        stress(new MutationRetry(20, 5));
+    }
+
+    @Test
+    void optimisticLockWithRetry() throws Exception {
+        service.setMutationCoordinator(new OptimisticLockCoordinator(entityManager, transactionManager));
+        stress(new MutationRetry(200, 5));
+    }
+
+    private void stress(MutationRetry retry) throws Exception {
+        Category root = service.createNode(new Category("Root"));
+        List<Long> ids = new CopyOnWriteArrayList<>(List.of(root.getId()));
+        AtomicInteger inserted = new AtomicInteger();
+        AtomicInteger deleted = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        Object[] current = ids.toArray();
+                        Long target = (Long) current[random.nextInt(current.length)];
+                        try {
+                            if (random.nextInt(10) < 7 || target.equals(root.getId())) {
+                                Category child = retry.run(() -> service.createNode(new Category("Child"), target));
+                                ids.add(child.getId());
+                                inserted.incrementAndGet();
+                            } else {
+                                retry.run(() -> service.deleteNode(target));
+                                ids.remove(target);
+                                deleted.incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            // the target was deleted by another thread in the meantime
+                            if (!String.valueOf(e.getMessage()).endsWith("not found")) {
+                                throw e;
+                            }
+                            ids.remove(target);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Category> nodes = repository.findAllByOrderByLft();
+        CategoryTrees.assertDense(nodes);
+        Assertions.assertEquals(root.getId(), nodes.getFirst().getId());
+        Assertions.assertEquals(2 * nodes.size(), nodes.getFirst().getRgt());
+        // deletes take whole subtrees with them, so part of the later operations find their target gone
+        Assertions.assertTrue(inserted.get() + deleted.get() > THREADS * OPERATIONS_PER_THREAD / 2);
+        Assertions.assertTrue(deleted.get() > 0);
+    }
+
+    @TestConfiguration
+    static class Services {
+        @Bean
+        CategoryService categoryService(CategoryRepository repository) {
+            return new CategoryService(repository);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryComponentFactory;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class IterativeTreeBuilderTest {
+    private final NodeComponentFactory factory = new CategoryComponentFactory();
+
+    @Test
+    void buildsSameTreeAsRecursiveBuilder() {
+        for (int fanout : new int[]{1, 2, 5, 50}) {
+            List<NodeComponent> nodes = List.copyOf(CategoryTrees.generate(500, fanout));
+
+            NodeComponent expected = new TreeBuilderImpl(factory).buildTree(nodes).orElseThrow();
+            NodeComponent actual = new IterativeTreeBuilder(factory).buildTree(nodes).orElseThrow();
+
+            Assertions.assertEquals(describe(expected), describe(actual));
+            Assertions.assertEquals(new TreeBuilderImpl(factory).getLeafList(expected).size(),
+                    new IterativeTreeBuilder(factory).getLeafList(actual).size());
+        }
+    }
+
+    @Test
+    void buildsDeepTreeWithoutRecursion() {
+        int depth = 100_000;
+        List<NodeComponent> chain = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            chain.add(new Category((long) i, "Level" + i, i + 1, 2 * depth - i, i));
+        }
+        IterativeTreeBuilder builder = new IterativeTreeBuilder(factory);
+
+        NodeComponent root = builder.buildTree(chain).orElseThrow();
+
+        List<NodeComponent> leaves = builder.getLeafList(root);
+        Assertions.assertEquals(1, leaves.size());
+        Assertions.assertEquals(depth - 1, leaves.getFirst().getDepth());
+        Assertions.assertEquals(depth - 2, leaves.getFirst().getParent().getDepth());
+    }
+
+    @Test
+    void stopsAtTheEndOfTheFirstRoot() {
+        List<NodeComponent> nodes = new ArrayList<>(CategoryTrees.generate(3, 2));
+        nodes.add(new Category(9L, "Second", 7, 8, 0));
+
+        NodeComponent root = new IterativeTreeBuilder(factory).buildTree(nodes).orElseThrow();
+
+        Assertions.assertEquals(2, root.getChildren().size());
+    }
+
+    private String describe(NodeComponent root) {
+        StringBuilder out = new StringBuilder();
+        describe(root, out);
+        return out.toString();
+    }
+
+    private void describe(NodeComponent node, StringBuilder out) {
+        out.append(node.getName()).append('@').append(node.getDepth()).append(node.getClass().getSimpleName()).append('(');
+        if (node.getRgt() != node.getLft() + 1) {
+            node.getChildren().forEach(child -> describe(child, out));
+        }
+        out.append(')');
+    }
+}
@@ -0,0 +1,64 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class MappedTreeSnapshotTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void readsWhatWasWritten() throws IOException {
+        List<Category> nodes = CategoryTrees.generate(100, 4);
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).setId(5000L - i * 7);
+        }
+        nodes.get(3).setName(null);
+        nodes.get(4).setName("Ünïcode ✓");
+        PackedTree packed = PackedTree.from(nodes.stream());
+        Path file = directory.resolve("tree.bin");
+
+        MappedTreeSnapshot.write(packed, file);
+        MappedTreeSnapshot mapped = MappedTreeSnapshot.open(file);
+
+        Assertions.assertEquals(packed.size(), mapped.size());
+        for (int i = 0; i < packed.size(); i++) {
+            Assertions.assertEquals(packed.getId(i), mapped.getId(i));
+            Assertions.assertEquals(i, mapped.indexOf(packed.getId(i)));
+            Assertions.assertEquals(i, mapped.indexOfLeft(packed.getLft(i)));
+            Assertions.assertEquals(packed.getRgt(i), mapped.getRgt(i));
+            Assertions.assertEquals(packed.getDepth(i), mapped.getDepth(i));
+            Assertions.assertEquals(packed.getParent(i), mapped.getParent(i));
+            Assertions.assertEquals(packed.getName(i), mapped.getName(i));
+            Assertions.assertEquals(packed.getSubtreeEnd(i), mapped.getSubtreeEnd(i));
+            Assertions.assertEquals(packed.getNextSibling(i), mapped.getNextSibling(i));
+        }
+        Assertions.assertNull(mapped.getName(3));
+        Assertions.assertEquals("Ünïcode ✓", mapped.getName(4));
+        Assertions.assertEquals(-1, mapped.indexOf(1L));
+        Assertions.assertArrayEquals(packed.getPath(99), mapped.getPath(99));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> mapped.getLft(100));
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedFiles() throws IOException {
+        Path foreign = Files.write(directory.resolve("foreign.bin"), new byte[64]);
+        Assertions.assertThrows(RuntimeException.class, () -> MappedTreeSnapshot.open(foreign));
+
+        Path file = directory.resolve("tree.bin");
+        MappedTreeSnapshot.write(PackedTree.from(CategoryTrees.generate(10, 2).stream().peek(node -> node.setId(1L + node.getLft()))), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = Files.write(directory.resolve("truncated.bin"), Arrays.copyOf(bytes, bytes.length - 2));
+        Assertions.assertThrows(RuntimeException.class, () -> MappedTreeSnapshot.open(truncated));
+    }
+}
@@ -0,0 +1,107 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.repository.CategoryRepository;
+import com.coolstuff.core.nestedset.repository.CategoryRepositoryImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+@DataJpaTest
+class NestedSetValidatorTest {
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private CategoryRepositoryImpl repositoryImpl;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private NestedSetValidator<Category> validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new NestedSetValidator<>(repositoryImpl);
+    }
+
+    @Test
+    void acceptsAConsistentTree() {
+        repository.saveAll(CategoryTrees.generate(200, 3));
+
+        Assertions.assertEquals(List.of(), validator.validate());
+        Assertions.assertEquals(0, validator.rebuild());
+    }
+
+    @Test
+    void rebuildRepairsAnInterruptedShift() {
+        List<Category> tree = repository.saveAll(CategoryTrees.generate(40, 3));
+        List<String> names = tree.stream().map(Category::getName).toList();
+        Category middle = tree.get(20);
+        // the rgt half of a boundary shift, as left behind when the lft half never ran
+        entityManager.createQuery("update Category c set c.rgt = c.rgt + 2 where c.rgt >= :from")
+                .setParameter("from", middle.getLft())
+                .executeUpdate();
+        entityManager.createQuery("update Category c set c.depth = 5 where c.id = :id")
+                .setParameter("id", tree.get(3).getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        List<NestedSetValidator.Violation> violations = validator.validate();
+        Assertions.assertFalse(violations.isEmpty());
+        Assertions.assertTrue(violations.stream().anyMatch(violation -> violation.id().equals(tree.get(3).getId())));
+
+        Assertions.assertTrue(validator.rebuild() > 0);
+
+        Assertions.assertEquals(List.of(), validator.validate());
+        List<Category> repaired = repository.findAllByOrderByLft();
+        CategoryTrees.assertDense(repaired);
+        Assertions.assertEquals(names, repaired.stream().map(Category::getName).toList());
+        Assertions.assertEquals(tree.get(3).getDepth(), repaired.get(3).getDepth());
+    }
+
+    @Test
+    void reportsOverlapsWithoutContiguityCheck() {
+        List<Category> tree = repository.saveAll(CategoryTrees.generate(7, 2));
+        entityManager.createQuery("update Category c set c.rgt = 14 where c.id = :id")
+                .setParameter("id", tree.get(6).getId())
+                .executeUpdate();
+        entityManager.clear();
+        validator.setContiguous(false);
+
+        List<NestedSetValidator.Violation> violations = validator.validate();
+
+        Assertions.assertEquals(1, violations.size());
+        Assertions.assertTrue(violations.getFirst().problem().startsWith("overlaps its parent"));
+    }
+
+    @Test
+    void reportsAndRenumbersRowsWithoutBoundaries() {
+        List<Category> tree = repository.saveAll(CategoryTrees.generate(7, 2));
+        entityManager.createQuery("update Category c set c.lft = null where c.id = :id")
+                .setParameter("id", tree.get(3).getId())
+                .executeUpdate();
+        entityManager.createQuery("update Category c set c.rgt = null where c.id = :id")
+                .setParameter("id", tree.get(6).getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        Assertions.assertEquals(2, validator.validate().stream()
+                .filter(violation -> violation.problem().equals("lft or rgt is missing"))
+                .count());
+
+        Assertions.assertTrue(validator.rebuild() > 0);
+
+        Assertions.assertEquals(List.of(), validator.validate());
+        List<Category> repaired = repository.findAllByOrderByLft();
+        Assertions.assertEquals(tree.get(3).getId(), repaired.getLast().getId());
+        Assertions.assertEquals(0, repaired.getLast().getDepth());
+    }
+}
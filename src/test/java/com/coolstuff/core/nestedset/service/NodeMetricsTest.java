@@ -0,0 +1,79 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryComponentFactory;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.repository.CategoryRepository;
+import com.coolstuff.core.nestedset.repository.CategoryRepositoryImpl;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@DataJpaTest
+class NodeMetricsTest {
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private CategoryRepositoryImpl repositoryImpl;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private CategoryService service;
+
+    @BeforeEach
+    void setUp() {
+        repositoryImpl.setMeterRegistry(registry);
+        service = new CategoryService(repository);
+        service.setMeterRegistry(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repositoryImpl.setMeterRegistry(Metrics.globalRegistry);
+    }
+
+    @Test
+    void recordsRepositoryCallsAndShiftedRows() {
+        List<Category> tree = CategoryTrees.generate(7, 2);
+        tree.forEach(entityManager::persist);
+        entityManager.flush();
+
+        service.createNode(new Category(null, "Leaf", null, null, null), tree.get(1).getId());
+        repository.findChildren(tree.getFirst().getLft(), tree.getFirst().getRgt());
+
+        // the new leaf shifts its parent, the root and the three nodes after it
+        Assertions.assertEquals(5, registry.get("nestedset.repository.rows.shifted").tag("entity", "Category").counter().count());
+        Assertions.assertEquals(1, registry.get("nestedset.repository").tag("method", "shiftBoundariesFrom").timer().count());
+        Assertions.assertEquals(1, registry.get("nestedset.mutation").tag("operation", "createNode").timer().count());
+
+        var subtreeSizes = registry.get("nestedset.repository.subtree.size").summary();
+        Assertions.assertEquals(1, subtreeSizes.count());
+        Assertions.assertEquals(8, subtreeSizes.totalAmount());
+    }
+
+    @Test
+    void recordsTreeBuilds() {
+        TreeBuilderImpl builder = new TreeBuilderImpl(new CategoryComponentFactory());
+        builder.setMeterRegistry(registry);
+
+        builder.buildTree(new ArrayList<NodeComponent>(CategoryTrees.generate(15, 2)));
+
+        Assertions.assertEquals(1, registry.get("nestedset.tree.build").tag("builder", "recursive").timer().count());
+        Assertions.assertEquals(15, registry.get("nestedset.tree.build.nodes").summary().totalAmount());
+    }
+}
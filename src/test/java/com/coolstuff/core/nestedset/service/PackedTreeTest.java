@@ -0,0 +1,75 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class PackedTreeTest {
+
+    @Test
+    void matchesTheNestedSetColumns() {
+        List<Category> nodes = CategoryTrees.generate(40, 3);
+        for (int i = 0; i < nodes.size(); i++) {
+            // ids in reverse so they are not in lft order
+            nodes.get(i).setId(1000L - i);
+        }
+
+        PackedTree tree = PackedTree.from(nodes.stream());
+
+        Assertions.assertEquals(40, tree.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Category node = nodes.get(i);
+            Assertions.assertEquals(i, tree.indexOf(node.getId()));
+            Assertions.assertEquals(i, tree.indexOfLeft(node.getLft()));
+            Assertions.assertEquals(node.getName(), tree.getName(i));
+            Assertions.assertEquals(node.getDepth(), tree.getDepth(i));
+            Assertions.assertEquals(node.getRgt() == node.getLft() + 1, tree.isLeaf(i));
+            Assertions.assertEquals((node.getRgt() - node.getLft() - 1) / 2, tree.countDescendants(i));
+        }
+        Assertions.assertEquals(-1, tree.indexOf(1L));
+        Assertions.assertEquals(-1, tree.getParent(0));
+    }
+
+    @Test
+    void walksChildrenAndAncestors() {
+        List<Category> nodes = CategoryTrees.generate(13, 3);
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).setId(i + 1L);
+        }
+        nodes.add(new Category(99L, null, 27, 28, 0));
+
+        PackedTree tree = PackedTree.from(nodes.stream());
+
+        List<String> children = new ArrayList<>();
+        for (int child = tree.getFirstChild(0); child != -1; child = tree.getNextSibling(child)) {
+            children.add(tree.getName(child));
+        }
+        Assertions.assertEquals(List.of("Node.0", "Node.1", "Node.2"), children);
+        Assertions.assertEquals(-1, tree.getFirstChild(2));
+
+        int leaf = tree.indexOf(nodes.get(12).getId());
+        List<String> path = new ArrayList<>();
+        for (int index : tree.getPath(leaf)) {
+            path.add(tree.getName(index));
+        }
+        Assertions.assertEquals(List.of("Node", "Node.2", "Node.2.2"), path);
+        Assertions.assertTrue(tree.isAncestorOf(0, leaf));
+        Assertions.assertFalse(tree.isAncestorOf(1, leaf));
+
+        int second = tree.indexOf(99L);
+        Assertions.assertEquals(-1, tree.getParent(second));
+        Assertions.assertEquals(second, tree.getNextSibling(0));
+        Assertions.assertNull(tree.getName(second));
+    }
+
+    @Test
+    void rejectsNodesOutOfOrder() {
+        List<Category> nodes = CategoryTrees.generate(3, 2);
+
+        Assertions.assertThrows(RuntimeException.class, () -> PackedTree.from(nodes.reversed().stream()));
+    }
+}
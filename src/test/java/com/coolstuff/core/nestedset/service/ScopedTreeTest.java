@@ -0,0 +1,123 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.CategoryComponentFactory;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import com.coolstuff.core.nestedset.model.ScopedCategory;
+import com.coolstuff.core.nestedset.repository.ScopedCategoryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+@DataJpaTest
+class ScopedTreeTest {
+
+    @Autowired
+    private ScopedCategoryRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AbstractPersistenceNodeService<ScopedCategory, Long> service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AbstractPersistenceNodeService<>(repository) {
+        };
+    }
+
+    @Test
+    void treesAreNumberedIndependently() {
+        ScopedCategory first = service.createNode(new ScopedCategory(1L, "First"));
+        ScopedCategory second = service.createNode(new ScopedCategory(2L, "Second"));
+
+        Assertions.assertEquals(1, first.getLft());
+        Assertions.assertEquals(1, second.getLft());
+
+        ScopedCategory child = service.createNode(new ScopedCategory(null, "Child"), second.getId());
+        Assertions.assertEquals(2L, child.getTreeId());
+        Assertions.assertEquals(List.of(1, 2), List.of(first.getLft(), first.getRgt()));
+        Assertions.assertEquals(List.of(1, 4), List.of(second.getLft(), second.getRgt()));
+    }
+
+    @Test
+    void cachedFunctionsLoadOneSnapshotPerScope() {
+        ScopedCategory first = service.createNode(new ScopedCategory(1L, "First"));
+        ScopedCategory second = service.createNode(new ScopedCategory(2L, "Second"));
+        service.createNode(new ScopedCategory(null, "A"), first.getId());
+        service.createNode(new ScopedCategory(null, "B"), second.getId());
+        CategoryComponentFactory factory = new CategoryComponentFactory();
+        CachedNodeFunctions<ScopedCategory, Long> functions = new CachedNodeFunctions<>(repository, new TreeBuilderImpl(factory), factory);
+
+        Assertions.assertEquals("B", functions.findLeavesOf(second.getId()).getFirst().getName());
+        Assertions.assertEquals(2, functions.getSnapshot(2L).size());
+        Assertions.assertEquals(List.of("First", "A"),
+                functions.getSnapshot(1L).getSubtree(first.getId()).stream().map(NodeComponent::getName).toList());
+        Assertions.assertThrows(RuntimeException.class, functions::getAllNodes);
+        Assertions.assertEquals(2, functions.getMissCount());
+    }
+
+    @Test
+    void writesWithoutAScopeAreRejected() {
+        ScopedCategory first = service.createNode(new ScopedCategory(1L, "First"));
+        service.createNode(new ScopedCategory(2L, "Second"));
+
+        Assertions.assertThrows(RuntimeException.class, () -> repository.shiftBoundariesFrom(1, 2));
+        Assertions.assertThrows(RuntimeException.class, () -> repository.deleteNodesInRange(1, 2));
+        Assertions.assertThrows(RuntimeException.class, () -> repository.incrementRightBoundaryAfter(1));
+
+        repository.shiftBoundariesFrom(1L, 1, 2);
+        entityManager.clear();
+        Assertions.assertEquals(List.of(List.of(3, 4, 0)), boundaries(1L));
+        Assertions.assertEquals(List.of(List.of(1, 2, 0)), boundaries(2L));
+        Assertions.assertEquals(2, repository.findAllViews().size());
+    }
+
+    @Test
+    void writesOnlyTouchTheirOwnTree() {
+        ScopedCategory first = service.createNode(new ScopedCategory(1L, "First"));
+        ScopedCategory second = service.createNode(new ScopedCategory(2L, "Second"));
+        for (int i = 0; i < 5; i++) {
+            service.createNode(new ScopedCategory(null, "A" + i), first.getId());
+            service.createNode(new ScopedCategory(null, "B" + i), second.getId());
+        }
+        ScopedCategory moved = repository.findByTreeIdOrderByLft(1L).get(3);
+        entityManager.flush();
+        entityManager.clear();
+        List<List<Integer>> before = boundaries(2L);
+
+        service.moveAfter(moved.getId(), repository.findByTreeIdOrderByLft(1L).get(1).getId());
+        service.deleteNode(repository.findByTreeIdOrderByLft(1L).get(2).getId());
+        service.createNode(new ScopedCategory(null, "A5"), first.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        Assertions.assertEquals(before, boundaries(2L));
+        CategoryTrees.assertDense(repository.findByTreeIdOrderByLft(1L));
+        CategoryTrees.assertDense(repository.findByTreeIdOrderByLft(2L));
+        // both trees cover the same lft/rgt values, an unscoped query would mix their nodes
+        Assertions.assertEquals(List.of("Second", "B0"),
+                repository.findParentOf(repository.findByTreeIdOrderByLft(2L).get(1).getId()).stream().map(ScopedCategory::getName).toList());
+        Assertions.assertEquals(6, repository.findImmediateChildren(second.getId()).size());
+    }
+
+    @Test
+    void nodesCannotMoveBetweenTrees() {
+        ScopedCategory first = service.createNode(new ScopedCategory(1L, "First"));
+        ScopedCategory second = service.createNode(new ScopedCategory(2L, "Second"));
+
+        Assertions.assertThrows(RuntimeException.class,
+                () -> service.moveNode(first.getId(), second.getId(), MovePosition.LAST_CHILD));
+    }
+
+    private List<List<Integer>> boundaries(Long treeId) {
+        return repository.findByTreeIdOrderByLft(treeId).stream()
+                .map(node -> List.of(node.getLft(), node.getRgt(), node.getDepth()))
+                .toList();
+    }
+}
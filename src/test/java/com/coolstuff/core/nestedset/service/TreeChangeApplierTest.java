@@ -0,0 +1,123 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryComponentFactory;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.model.NodeView;
+import com.coolstuff.core.nestedset.repository.CategoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class TreeChangeApplierTest {
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<TreeChanges> published = new ArrayList<>();
+
+    private CategoryService service;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        service = new CategoryService(repository);
+        service.setTreeChangeSink(published::add);
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void patchedCopyMatchesTheTable() {
+        repository.saveAll(CategoryTrees.generate(40, 3));
+        TreeChangeApplier applier = new TreeChangeApplier(null, repository.findAllViews(), new CategoryComponentFactory());
+        Random random = new Random(7);
+
+        for (int step = 0; step < 60; step++) {
+            List<Category> nodes = repository.findAllByOrderByLft();
+            Category node = nodes.get(random.nextInt(nodes.size()));
+            Category other = nodes.get(random.nextInt(nodes.size()));
+            boolean otherInside = other.getLft() >= node.getLft() && other.getRgt() <= node.getRgt();
+            transaction.executeWithoutResult(status -> {
+                switch (random.nextInt(6)) {
+                    case 0 -> service.createNode(new Category("New"), node.getId());
+                    case 1 -> service.createNodes(List.of(new NodeInsert<>(new Category("A"), node.getId()),
+                            new NodeInsert<>(new Category("B"), other.getId())));
+                    case 2 -> service.createSubtree(node.getId(), List.of(subtreeNode("S", 0), subtreeNode("S.0", 1)));
+                    case 3 -> {
+                        if (!otherInside) {
+                            service.moveNode(node.getId(), other.getId(), random.nextBoolean() ? MovePosition.FIRST_CHILD : MovePosition.LAST_CHILD);
+                        }
+                    }
+                    case 4 -> {
+                        if (!otherInside && other.getDepth() > 0) {
+                            service.moveBefore(node.getId(), other.getId());
+                        }
+                    }
+                    default -> {
+                        if (node.getDepth() > 0 && nodes.size() > 20) {
+                            service.deleteNode(node.getId());
+                        }
+                    }
+                }
+            });
+
+            published.forEach(applier::apply);
+            published.clear();
+            Assertions.assertEquals(repository.findAllViews(), applier.getNodes().stream().map(NodeView::of).toList(), "step " + step);
+        }
+        Assertions.assertFalse(applier.isStale());
+    }
+
+    @Test
+    void publishesOnlyCommittedChanges() {
+        List<Category> tree = repository.saveAll(CategoryTrees.generate(7, 2));
+
+        Assertions.assertThrows(RuntimeException.class, () -> transaction.executeWithoutResult(status -> {
+            service.createNode(new Category("Rolled back"), tree.get(1).getId());
+            service.createNode(new Category("Orphan"), -1L);
+        }));
+        Assertions.assertTrue(published.isEmpty());
+
+        transaction.executeWithoutResult(status -> {
+            service.createNode(new Category("First"), tree.get(1).getId());
+            service.deleteNode(tree.get(4).getId());
+        });
+        Assertions.assertEquals(1, published.size());
+        Assertions.assertEquals(List.of(TreeChangeEvent.BoundariesShifted.class, TreeChangeEvent.NodesInserted.class,
+                        TreeChangeEvent.SubtreeDeleted.class, TreeChangeEvent.BoundariesShifted.class),
+                published.getFirst().events().stream().map(Object::getClass).toList());
+
+        TreeChangeApplier applier = new TreeChangeApplier(null, repository.findAllViews(), new CategoryComponentFactory());
+        service.setNumberingMode(NumberingMode.SPARSE);
+        transaction.executeWithoutResult(status -> service.rebalance(tree.getFirst().getId()));
+        published.forEach(applier::apply);
+        Assertions.assertTrue(applier.isStale());
+    }
+
+    private Category subtreeNode(String name, int depth) {
+        Category node = new Category(name);
+        node.setDepth(depth);
+        return node;
+    }
+}
@@ -0,0 +1,69 @@
+package com.coolstuff.core.nestedset.service;
+
+import com.coolstuff.core.nestedset.model.Category;
+import com.coolstuff.core.nestedset.model.CategoryComponentFactory;
+import com.coolstuff.core.nestedset.model.CategoryTrees;
+import com.coolstuff.core.nestedset.model.NodeComponent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+class TreeTraversalTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final TreeTraversal traversal = new TreeTraversal(pool, 64);
+    private final IterativeTreeBuilder builder = new IterativeTreeBuilder(new CategoryComponentFactory());
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesSequentialWalk() {
+        for (int fanout : new int[]{2, 3, 50}) {
+            List<NodeComponent> nodes = List.copyOf(CategoryTrees.generate(20_000, fanout));
+            NodeComponent root = builder.buildTree(nodes).orElseThrow();
+            List<NodeComponent> expected = builder.getLeafList(root);
+
+            Assertions.assertEquals(names(expected), names(traversal.collectLeaves(root)));
+            Assertions.assertEquals(names(expected), names(traversal.collectLeaves(nodes)));
+            Assertions.assertEquals(nodes.stream().mapToLong(NodeComponent::getDepth).sum(),
+                    traversal.aggregate(root, node -> (long) node.getDepth(), Long::sum));
+            Assertions.assertEquals(nodes.size() - 1, traversal.countDescendants(root));
+        }
+    }
+
+    @Test
+    void aggregatesSubtreesOfOrderedList() {
+        List<NodeComponent> nodes = List.copyOf(CategoryTrees.generate(1000, 3));
+
+        for (int index : new int[]{0, 1, 2, 500, 999}) {
+            NodeComponent node = nodes.get(index);
+            int descendants = (node.getRgt() - node.getLft() - 1) / 2;
+            Assertions.assertEquals(descendants, traversal.countDescendants(nodes, index));
+            Assertions.assertEquals(descendants + 1L, traversal.aggregate(nodes, index, n -> 1L, Long::sum).orElseThrow());
+        }
+        Assertions.assertTrue(traversal.aggregate(List.of(), 0, n -> 1L, Long::sum).isEmpty());
+    }
+
+    @Test
+    void walksDeepChainsWithoutNesting() {
+        int depth = 100_000;
+        List<NodeComponent> chain = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            chain.add(new Category((long) i, "Level" + i, i + 1, 2 * depth - i, i));
+        }
+        NodeComponent root = builder.buildTree(chain).orElseThrow();
+
+        Assertions.assertEquals(List.of("Level" + (depth - 1)), names(traversal.collectLeaves(root)));
+        Assertions.assertEquals(depth - 1, traversal.countDescendants(root));
+    }
+
+    private List<String> names(List<NodeComponent> nodes) {
+        return nodes.stream().map(NodeComponent::getName).toList();
+    }
+}
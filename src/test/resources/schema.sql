@@ -0,0 +1 @@
+CREATE TABLE IF NOT EXISTS nested_set_lock (tree_key VARCHAR(255) PRIMARY KEY, version BIGINT NOT NULL);